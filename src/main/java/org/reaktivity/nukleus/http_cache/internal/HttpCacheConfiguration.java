@@ -20,8 +20,46 @@ import org.reaktivity.nukleus.Configuration;
 public class HttpCacheConfiguration extends Configuration
 {
     public static final String HTTP_CACHE_CAPACITY = "nukleus.http_cache.capacity";
+    public static final String HTTP_CACHE_MAX_FRAME_SIZE = "nukleus.http_cache.max.frame.size";
+    public static final String HTTP_CACHE_WRITE_BUDGET = "nukleus.http_cache.write.budget";
+    public static final String HTTP_CACHE_FAN_OUT_BATCH_SIZE = "nukleus.http_cache.fan.out.batch.size";
+    public static final String HTTP_CACHE_REFRESH_MAX_IN_FLIGHT = "nukleus.http_cache.refresh.max.in.flight";
+    public static final String HTTP_CACHE_REFRESH_RATE = "nukleus.http_cache.refresh.rate";
+    public static final String HTTP_CACHE_REFRESH_TIMEOUT = "nukleus.http_cache.refresh.timeout";
+    public static final String HTTP_CACHE_ORIGIN_FAILURE_THRESHOLD = "nukleus.http_cache.origin.failure.threshold";
+    public static final String HTTP_CACHE_ORIGIN_ERROR_RATE_THRESHOLD = "nukleus.http_cache.origin.error.rate.threshold";
+    public static final String HTTP_CACHE_ORIGIN_BACKOFF = "nukleus.http_cache.origin.backoff";
+    public static final String HTTP_CACHE_ORIGIN_MAX_BACKOFF = "nukleus.http_cache.origin.max.backoff";
+    public static final String HTTP_CACHE_ORIGIN_SHORT_CIRCUIT = "nukleus.http_cache.origin.short.circuit";
+    public static final String HTTP_CACHE_ADMISSION_THRESHOLD = "nukleus.http_cache.admission.threshold";
+    public static final String HTTP_CACHE_ADMISSION_FREQUENCY = "nukleus.http_cache.admission.frequency";
+    public static final String HTTP_CACHE_EVICTION_POLICY = "nukleus.http_cache.eviction.policy";
+    public static final String HTTP_CACHE_GHOST_SAMPLING = "nukleus.http_cache.ghost.sampling";
+    public static final String HTTP_CACHE_SWEEP_LIMIT = "nukleus.http_cache.sweep.limit";
+    public static final String HTTP_CACHE_SWEEP_MAX_STALE = "nukleus.http_cache.sweep.max.stale";
+    public static final String HTTP_CACHE_EVENTS_CAPACITY = "nukleus.http_cache.events.capacity";
+    public static final String HTTP_CACHE_HOT_KEYS = "nukleus.http_cache.hot.keys";
 
     private static final int HTTP_CACHE_CAPACITY_DEFAULT = 65536 * 64;
+    private static final int HTTP_CACHE_MAX_FRAME_SIZE_DEFAULT = 8192;
+    private static final int HTTP_CACHE_WRITE_BUDGET_DEFAULT = 65536 * 16;
+    private static final int HTTP_CACHE_FAN_OUT_BATCH_SIZE_DEFAULT = 256;
+    private static final int HTTP_CACHE_REFRESH_MAX_IN_FLIGHT_DEFAULT = 64;
+    private static final int HTTP_CACHE_REFRESH_RATE_DEFAULT = 256;
+    private static final int HTTP_CACHE_REFRESH_TIMEOUT_DEFAULT = 30000;
+    private static final int HTTP_CACHE_ORIGIN_FAILURE_THRESHOLD_DEFAULT = 5;
+    private static final int HTTP_CACHE_ORIGIN_ERROR_RATE_THRESHOLD_DEFAULT = 60;
+    private static final int HTTP_CACHE_ORIGIN_BACKOFF_DEFAULT = 1000;
+    private static final int HTTP_CACHE_ORIGIN_MAX_BACKOFF_DEFAULT = 60000;
+    private static final boolean HTTP_CACHE_ORIGIN_SHORT_CIRCUIT_DEFAULT = false;
+    private static final int HTTP_CACHE_ADMISSION_THRESHOLD_DEFAULT = 75;
+    private static final int HTTP_CACHE_ADMISSION_FREQUENCY_DEFAULT = 2;
+    private static final String HTTP_CACHE_EVICTION_POLICY_DEFAULT = "gdsf";
+    private static final int HTTP_CACHE_GHOST_SAMPLING_DEFAULT = 8;
+    private static final int HTTP_CACHE_SWEEP_LIMIT_DEFAULT = 64;
+    private static final int HTTP_CACHE_SWEEP_MAX_STALE_DEFAULT = 300;
+    private static final int HTTP_CACHE_EVENTS_CAPACITY_DEFAULT = 16384;
+    private static final int HTTP_CACHE_HOT_KEYS_DEFAULT = 32;
 
     public HttpCacheConfiguration(
         Configuration config)
@@ -34,4 +72,99 @@ public class HttpCacheConfiguration extends Configuration
         return getInteger(HTTP_CACHE_CAPACITY, HTTP_CACHE_CAPACITY_DEFAULT);
     }
 
+    public int maxFrameSize()
+    {
+        return getInteger(HTTP_CACHE_MAX_FRAME_SIZE, HTTP_CACHE_MAX_FRAME_SIZE_DEFAULT);
+    }
+
+    public int writeBudget()
+    {
+        return getInteger(HTTP_CACHE_WRITE_BUDGET, HTTP_CACHE_WRITE_BUDGET_DEFAULT);
+    }
+
+    public int fanOutBatchSize()
+    {
+        return getInteger(HTTP_CACHE_FAN_OUT_BATCH_SIZE, HTTP_CACHE_FAN_OUT_BATCH_SIZE_DEFAULT);
+    }
+
+    public int refreshMaxInFlight()
+    {
+        return getInteger(HTTP_CACHE_REFRESH_MAX_IN_FLIGHT, HTTP_CACHE_REFRESH_MAX_IN_FLIGHT_DEFAULT);
+    }
+
+    public int refreshRate()
+    {
+        return getInteger(HTTP_CACHE_REFRESH_RATE, HTTP_CACHE_REFRESH_RATE_DEFAULT);
+    }
+
+    public int refreshTimeout()
+    {
+        return getInteger(HTTP_CACHE_REFRESH_TIMEOUT, HTTP_CACHE_REFRESH_TIMEOUT_DEFAULT);
+    }
+
+    public int originFailureThreshold()
+    {
+        return getInteger(HTTP_CACHE_ORIGIN_FAILURE_THRESHOLD, HTTP_CACHE_ORIGIN_FAILURE_THRESHOLD_DEFAULT);
+    }
+
+    public int originErrorRateThreshold()
+    {
+        return getInteger(HTTP_CACHE_ORIGIN_ERROR_RATE_THRESHOLD, HTTP_CACHE_ORIGIN_ERROR_RATE_THRESHOLD_DEFAULT);
+    }
+
+    public int originBackoff()
+    {
+        return getInteger(HTTP_CACHE_ORIGIN_BACKOFF, HTTP_CACHE_ORIGIN_BACKOFF_DEFAULT);
+    }
+
+    public int originMaxBackoff()
+    {
+        return getInteger(HTTP_CACHE_ORIGIN_MAX_BACKOFF, HTTP_CACHE_ORIGIN_MAX_BACKOFF_DEFAULT);
+    }
+
+    public boolean originShortCircuit()
+    {
+        return getBoolean(HTTP_CACHE_ORIGIN_SHORT_CIRCUIT, HTTP_CACHE_ORIGIN_SHORT_CIRCUIT_DEFAULT);
+    }
+
+    public int admissionThreshold()
+    {
+        return getInteger(HTTP_CACHE_ADMISSION_THRESHOLD, HTTP_CACHE_ADMISSION_THRESHOLD_DEFAULT);
+    }
+
+    public int admissionFrequency()
+    {
+        return getInteger(HTTP_CACHE_ADMISSION_FREQUENCY, HTTP_CACHE_ADMISSION_FREQUENCY_DEFAULT);
+    }
+
+    public String evictionPolicy()
+    {
+        return getProperty(HTTP_CACHE_EVICTION_POLICY, HTTP_CACHE_EVICTION_POLICY_DEFAULT);
+    }
+
+    public int ghostSampling()
+    {
+        return getInteger(HTTP_CACHE_GHOST_SAMPLING, HTTP_CACHE_GHOST_SAMPLING_DEFAULT);
+    }
+
+    public int sweepLimit()
+    {
+        return getInteger(HTTP_CACHE_SWEEP_LIMIT, HTTP_CACHE_SWEEP_LIMIT_DEFAULT);
+    }
+
+    public int sweepMaxStale()
+    {
+        return getInteger(HTTP_CACHE_SWEEP_MAX_STALE, HTTP_CACHE_SWEEP_MAX_STALE_DEFAULT);
+    }
+
+    public int eventsCapacity()
+    {
+        return getInteger(HTTP_CACHE_EVENTS_CAPACITY, HTTP_CACHE_EVENTS_CAPACITY_DEFAULT);
+    }
+
+    public int hotKeys()
+    {
+        return getInteger(HTTP_CACHE_HOT_KEYS, HTTP_CACHE_HOT_KEYS_DEFAULT);
+    }
+
 }
@@ -18,6 +18,10 @@ package org.reaktivity.nukleus.http_cache.internal;
 import static java.nio.ByteBuffer.allocateDirect;
 import static java.nio.ByteOrder.nativeOrder;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.function.ToIntFunction;
@@ -28,6 +32,9 @@ import org.reaktivity.nukleus.Controller;
 import org.reaktivity.nukleus.ControllerSpi;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.function.MessagePredicate;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HotKeys;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.PurgeCommands;
 import org.reaktivity.nukleus.http_cache.internal.types.control.Role;
 import org.reaktivity.nukleus.http_cache.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http_cache.internal.types.control.UnrouteFW;
@@ -42,11 +49,18 @@ public final class HttpCacheController implements Controller
 
     private final ControllerSpi controllerSpi;
     private final MutableDirectBuffer writeBuffer;
+    private final Path directory;
+
+    private LatencyHistograms histograms;
+    private HotKeys hotKeys;
+    private PurgeCommands commands;
 
     public HttpCacheController(
-        ControllerSpi controllerSpi)
+        ControllerSpi controllerSpi,
+        Path directory)
     {
         this.controllerSpi = controllerSpi;
+        this.directory = directory;
         this.writeBuffer = new UnsafeBuffer(allocateDirect(MAX_SEND_LENGTH).order(nativeOrder()));
     }
 
@@ -169,8 +183,100 @@ public final class HttpCacheController implements Controller
         return controllerSpi.doUnroute(unroute.typeId(), unroute.buffer(), unroute.offset(), unroute.sizeof());
     }
 
+    /**
+     * Purges the entries cached for this url in every authorization scope.
+     *
+     * @return false if the command could not be queued to the nukleus
+     */
+    public boolean purgeURL(
+        String url)
+    {
+        return supplyCommands() != null && commands.purgeURL(url);
+    }
+
+    /**
+     * Purges the entries cached for any url starting with this prefix in every authorization scope.
+     *
+     * @return false if the command could not be queued to the nukleus
+     */
+    public boolean purgePrefix(
+        String prefix)
+    {
+        return supplyCommands() != null && commands.purgePrefix(prefix);
+    }
+
+    /**
+     * Purges every entry cached for this authorization scope.
+     *
+     * @return false if the command could not be queued to the nukleus
+     */
+    public boolean purgeAuthScope(
+        short authScope)
+    {
+        return supplyCommands() != null && commands.purgeAuthScope(authScope);
+    }
+
+    /**
+     * Purges every entry tagged with this {@code Surrogate-Key} tag, or with {@code soft} only marks them stale
+     * so they are revalidated and can still answer under stale-if-error.
+     *
+     * @return false if the command could not be queued to the nukleus
+     */
+    public boolean purgeTag(
+        String tag,
+        boolean soft)
+    {
+        return supplyCommands() != null && commands.purgeTag(tag, soft);
+    }
+
     public long count(String name)
     {
         return controllerSpi.doCount(name);
     }
+
+    /**
+     * @param histogram   {@code hit.serve}, {@code refresh.rtt}, {@code refresh.lag}, {@code subscriber.wait}
+     *                    or {@code route.<connectRef>.origin.ttfb}
+     * @param percentile  between 0 and 100
+     * @return latency in microseconds at the given percentile, or zero if nothing has been recorded
+     */
+    public long percentile(
+        String histogram,
+        double percentile)
+    {
+        if (histograms == null && Files.exists(directory.resolve("histograms")))
+        {
+            histograms = LatencyHistograms.map(directory);
+        }
+        return histograms != null ? histograms.percentile(histogram, percentile) : 0L;
+    }
+
+    /**
+     * @param metric  {@code requests}, {@code bytes}, {@code fetches} or {@code subscribers}
+     * @return the hottest urls by the metric with their approximate counts, halved every minute so they favour
+     *         recent traffic, hottest first, as last published
+     */
+    public Map<String, Long> hotKeys(
+        String metric)
+    {
+        final int index = HotKeys.metric(metric);
+        if (index == -1)
+        {
+            throw new IllegalArgumentException("unknown metric " + metric);
+        }
+        if (hotKeys == null && Files.exists(directory.resolve("hot-keys")))
+        {
+            hotKeys = HotKeys.map(directory);
+        }
+        return hotKeys != null ? hotKeys.read(index) : Collections.emptyMap();
+    }
+
+    private PurgeCommands supplyCommands()
+    {
+        if (commands == null && Files.exists(directory.resolve("commands")))
+        {
+            commands = PurgeCommands.map(directory);
+        }
+        return commands;
+    }
 }
@@ -39,7 +39,7 @@ public final class HttpCacheControllerFactorySpi implements ControllerFactorySpi
         ControllerBuilder<HttpCacheController> builder)
     {
         return builder.setName(name())
-                      .setFactory(HttpCacheController::new)
+                      .setFactory(spi -> new HttpCacheController(spi, config.directory().resolve(name())))
                       .build();
     }
 }
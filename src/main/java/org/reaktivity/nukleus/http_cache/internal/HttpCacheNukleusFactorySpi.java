@@ -25,6 +25,12 @@ import org.reaktivity.nukleus.NukleusFactorySpi;
 import org.reaktivity.nukleus.http_cache.internal.stream.ProxyStreamFactoryBuilder;
 import org.reaktivity.nukleus.http_cache.internal.stream.ServerStreamFactoryBuilder;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.DelayedTaskScheduler;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EgressBudget;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.ExpirySweeper;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HotKeys;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.PurgeCommands;
 
 public final class HttpCacheNukleusFactorySpi implements NukleusFactorySpi
 {
@@ -43,13 +49,30 @@ public final class HttpCacheNukleusFactorySpi implements NukleusFactorySpi
         DelayedTaskScheduler scheduler = new DelayedTaskScheduler();
         builder.inject(scheduler);
         HttpCacheConfiguration httpCacheConfig = new HttpCacheConfiguration(config);
+        EgressBudget egress = new EgressBudget(httpCacheConfig.writeBudget(), httpCacheConfig.maxFrameSize());
+        builder.inject(egress);
+        ExpirySweeper sweeper = new ExpirySweeper(httpCacheConfig.sweepLimit());
+        builder.inject(sweeper);
+        LatencyHistograms histograms = LatencyHistograms.create(config.directory().resolve(name()));
+        EventLog events = EventLog.create(config.directory().resolve(name()), httpCacheConfig.eventsCapacity());
+        HotKeys hotKeys = HotKeys.create(config.directory().resolve(name()), httpCacheConfig.hotKeys());
+        PurgeCommands commands = PurgeCommands.create(config.directory().resolve(name()));
+        builder.inject(commands);
         final ProxyStreamFactoryBuilder proxyFactoryBuilder = new ProxyStreamFactoryBuilder(
                 httpCacheConfig,
-                scheduler::schedule);
+                scheduler::schedule,
+                egress,
+                sweeper,
+                histograms,
+                events,
+                hotKeys,
+                commands);
         final ServerStreamFactoryBuilder serverFactoryBuilder = new ServerStreamFactoryBuilder();
 
         return builder.streamFactory(PROXY, proxyFactoryBuilder)
+                      .routeHandler(PROXY, proxyFactoryBuilder::handleRoute)
                       .streamFactory(SERVER, serverFactoryBuilder)
+                      .routeHandler(SERVER, serverFactoryBuilder::handleRoute)
                       .build();
     }
 
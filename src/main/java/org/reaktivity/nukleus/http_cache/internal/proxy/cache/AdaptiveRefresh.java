@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+/**
+ * Poll interval for a refreshing entry, adapted to how often polling actually finds the entry modified.
+ * The observed change rate is an exponentially weighted moving average of poll outcomes, starting out as
+ * always changing.  Entries that keep changing are polled every surrogate max-age, entries that never
+ * change are stretched towards the end of the freshness extension, and a small forward jitter keeps
+ * entries cached together from polling in lockstep.
+ */
+public final class AdaptiveRefresh
+{
+    static final double CHANGE_RATE_WEIGHT = 0.25;
+    static final int MAX_STRETCH = 8;
+    static final double MAX_JITTER = 0.1;
+
+    private double changeRate = 1.0;
+
+    public void observe(
+        boolean changed)
+    {
+        changeRate += CHANGE_RATE_WEIGHT * ((changed ? 1.0 : 0.0) - changeRate);
+    }
+
+    public double changeRate()
+    {
+        return changeRate;
+    }
+
+    /**
+     * @param maxAgeMillis       surrogate max-age, the shortest interval
+     * @param extensionMillis    surrogate freshness extension, bounding how far the interval may stretch
+     * @param random             uniformly distributed in [0, 1), used for jitter
+     * @return milliseconds until the next poll
+     */
+    public long nextInterval(
+        long maxAgeMillis,
+        long extensionMillis,
+        double random)
+    {
+        final long maxInterval = Math.min(maxAgeMillis * MAX_STRETCH, maxAgeMillis + extensionMillis);
+        final double stretch = (1.0 - changeRate) * (maxInterval - maxAgeMillis);
+        final long interval = maxAgeMillis + (long) stretch;
+        final long jitter = (long) (interval * MAX_JITTER * random);
+        return Math.min(interval + jitter, Math.max(maxInterval, maxAgeMillis));
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * TinyLFU style admission in front of the cache slab.  Every cacheable request records its url in a
+ * {@link FrequencySketch}.  While fewer than the tight threshold of slots are in use every response is
+ * admitted.  After that a url is only admitted if it has been requested more often recently than the
+ * entry the eviction policy would give up for it, or at least the admission frequency when there is
+ * nothing to evict, so one-hit wonders stream through without taking slots from hot entries.
+ *
+ * Rejected responses are published in the {@code admission.rejects} counter.
+ */
+public final class AdmissionFilter
+{
+    private final FrequencySketch sketch;
+    private final IntSupplier acquiredSlots;
+    private final int tightSlots;
+    private final int minFrequency;
+    private final LongSupplier rejects;
+
+    public AdmissionFilter(
+        int totalSlots,
+        IntSupplier acquiredSlots,
+        int tightPercent,
+        int minFrequency,
+        LongSupplier rejects)
+    {
+        this.sketch = new FrequencySketch(totalSlots);
+        this.acquiredSlots = acquiredSlots;
+        this.tightSlots = (int) ((long) totalSlots * tightPercent / 100);
+        this.minFrequency = minFrequency;
+        this.rejects = rejects;
+    }
+
+    public void record(
+        int requestURLHash)
+    {
+        sketch.increment(requestURLHash);
+    }
+
+    public boolean isTight()
+    {
+        return acquiredSlots.getAsInt() >= tightSlots;
+    }
+
+    /**
+     * @return true if the url is requested often enough to be cached while the slab is tight
+     */
+    public boolean admit(
+        int requestURLHash)
+    {
+        return admitted(sketch.frequency(requestURLHash) >= minFrequency);
+    }
+
+    /**
+     * @return true if the url is requested more often than the url of the eviction victim it would replace
+     */
+    public boolean admit(
+        int requestURLHash,
+        int victimURLHash)
+    {
+        return admitted(sketch.frequency(requestURLHash) > sketch.frequency(victimURLHash));
+    }
+
+    private boolean admitted(
+        boolean admitted)
+    {
+        if (!admitted)
+        {
+            rejects.getAsLong();
+        }
+        return admitted;
+    }
+}
@@ -16,10 +16,13 @@
 
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
+import java.util.Random;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.IntArrayList;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
@@ -28,8 +31,11 @@ import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheableRequest
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.OnUpdateRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request.Type;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EgressBudget;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.LongObjectBiConsumer;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Writer;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
@@ -40,8 +46,31 @@ import org.reaktivity.nukleus.http_cache.internal.types.stream.WindowFW;
 public class Cache
 {
 
+    final Random random = new Random();
     final Writer writer;
+    final EgressBudget egress;
+    final UpdateFanOut updateFanOut;
+    final RefreshDispatcher refreshes;
+    final OriginHealth health;
+    final AdmissionFilter admission;
+    final EvictionPolicy eviction;
+    final LongSupplier evictions;
+    final GhostCache ghost;
+    final ExpiryIndex<CacheEntry> expiries;
+    final int expiryMaxStale;
+    final LongSupplier expirations;
+    final CacheCounters counters;
+    final LatencyHistograms histograms;
+    final EventLog events;
+    final HotKeyTracker hotKeys;
+    final int hitServeHistogram;
+    final int refreshHistogram;
+    final int subscriberWaitHistogram;
     final Int2ObjectHashMap<CacheEntry> cachedEntries;
+    final UrlIndex cachedURLs;
+    final TagIndex cachedTags;
+    final ScopeIndex cachedScopes;
+    final IntArrayList purgeCandidates;
     final BufferPool cachedRequestBufferPool;
     final BufferPool cachedResponseBufferPool;
     final BufferPool responseBufferPool;
@@ -54,6 +83,10 @@ public class Cache
     final WindowFW windowRO = new WindowFW();
 
     static final String RESPONSE_IS_STALE = "110 - \"Response is Stale\"";
+    static final String REVALIDATION_FAILED = "111 - \"Revalidation Failed\"";
+
+    static final long EXPIRY_BUCKET_MILLIS = 1000L;
+    static final int EXPIRY_BUCKETS = 4096;
 
     final CacheControl responseCacheControlFW = new CacheControl();
     final CacheControl cachedRequestCacheControlFW = new CacheControl();
@@ -62,15 +95,48 @@ public class Cache
     final Long2ObjectHashMap<Request> correlations;
     final Supplier<String> etagSupplier;
     final Long2ObjectHashMap<PendingCacheEntries> uncommittedRequests = new Long2ObjectHashMap<>();
+    final Long2ObjectHashMap<SubscriberList.Subscription> subscriptions = new Long2ObjectHashMap<>();
 
     public Cache(
             LongObjectBiConsumer<Runnable> scheduler,
             MutableDirectBuffer writeBuffer,
             BufferPool bufferPool,
             Long2ObjectHashMap<Request> correlations,
-            Supplier<String> etagSupplier)
+            Supplier<String> etagSupplier,
+            EgressBudget egress,
+            int fanOutBatchSize,
+            RefreshDispatcher refreshes,
+            OriginHealth health,
+            AdmissionFilter admission,
+            EvictionPolicy eviction,
+            LongSupplier evictions,
+            GhostCache ghost,
+            int expiryMaxStale,
+            LongSupplier expirations,
+            CacheCounters counters,
+            LatencyHistograms histograms,
+            EventLog events,
+            HotKeyTracker hotKeys)
     {
+        this.counters = counters;
+        this.histograms = histograms;
+        this.events = events;
+        this.hotKeys = hotKeys;
+        this.hitServeHistogram = histograms.supply("hit.serve");
+        this.refreshHistogram = histograms.supply("refresh.rtt");
+        this.subscriberWaitHistogram = histograms.supply("subscriber.wait");
+        this.ghost = ghost;
+        this.expiries = new ExpiryIndex<>(EXPIRY_BUCKET_MILLIS, EXPIRY_BUCKETS, System.currentTimeMillis());
+        this.expiryMaxStale = expiryMaxStale;
+        this.expirations = expirations;
+        this.health = health;
+        this.admission = admission;
+        this.eviction = eviction;
+        this.evictions = evictions;
         this.scheduler = scheduler;
+        this.refreshes = refreshes;
+        this.egress = egress;
+        this.updateFanOut = new UpdateFanOut(this, egress, fanOutBatchSize);
         this.correlations = correlations;
         this.writer = new Writer(writeBuffer, bufferPool.duplicate());
         this.cachedRequestBufferPool = bufferPool;
@@ -79,6 +145,10 @@ public class Cache
         this.responseBufferPool = bufferPool.duplicate();
         this.subscriberBufferPool = bufferPool.duplicate();
         this.cachedEntries = new Int2ObjectHashMap<>();
+        this.cachedURLs = new UrlIndex();
+        this.cachedTags = new TagIndex();
+        this.cachedScopes = new ScopeIndex();
+        this.purgeCandidates = new IntArrayList();
         this.etagSupplier = etagSupplier;
     }
 
@@ -87,7 +157,8 @@ public class Cache
         CacheableRequest request)
     {
         CacheEntry oldCacheEntry = cachedEntries.get(requestUrlHash);
-        boolean expectSubscribers = request.getType() == Type.INITIAL_REQUEST ? true: oldCacheEntry.expectSubscribers();
+        boolean expectSubscribers = request.getType() == Type.INITIAL_REQUEST ||
+                oldCacheEntry != null && oldCacheEntry.expectSubscribers();
         CacheEntry cacheEntry = new CacheEntry(
                 this,
                 request,
@@ -96,29 +167,24 @@ public class Cache
         if (cacheEntry.isIntendedForSingleUser())
         {
             cacheEntry.purge();
+            if (oldCacheEntry != null)
+            {
+                oldCacheEntry.revalidationNotStored();
+            }
         }
         else if (oldCacheEntry == null)
         {
             updateCache(requestUrlHash, cacheEntry);
+            evictVictim(request);
         }
-        else if (oldCacheEntry.isUpdatedBy(request))
+        else if (oldCacheEntry.isUpdatedBy(request) || oldCacheEntry.isRevalidating())
         {
+            cacheEntry.refreshedFrom(oldCacheEntry, request);
             updateCache(requestUrlHash, cacheEntry);
+            evictVictim(request);
 
-            oldCacheEntry.subscribers(subscriber ->
-            {
-                if (!this.serveRequest(
-                        cacheEntry,
-                        subscriber.getRequestHeaders(requestHeadersRO, subscriberBufferPool),
-                        subscriber.authScope(),
-                        subscriber))
-                {
-                    final MessageConsumer acceptReply = subscriber.acceptReply();
-                    final long acceptReplyStreamId = subscriber.acceptReplyStreamId();
-                    final long acceptCorrelationId = subscriber.acceptCorrelationId();
-                    this.writer.do503AndAbort(acceptReply, acceptReplyStreamId, acceptCorrelationId);
-                }
-            });
+            updateFanOut.publish(cacheEntry, oldCacheEntry);
+            oldCacheEntry.handOffRevalidators(cacheEntry);
             oldCacheEntry.purge();
         }
         else
@@ -137,6 +203,16 @@ public class Cache
     {
         cacheEntry.commit();
         cachedEntries.put(requestUrlHash, cacheEntry);
+        cachedURLs.add(cacheEntry.requestURL(), requestUrlHash);
+        cachedTags.add(requestUrlHash, cacheEntry.surrogateKeys());
+        cachedScopes.add(cacheEntry.authScope(), requestUrlHash);
+        eviction.admitted(requestUrlHash, cacheEntry.size(), cacheEntry.originLatency());
+        events.record(EventLog.STORED, requestUrlHash, cacheEntry.authScope(), cacheEntry.size(),
+                cacheEntry.originLatency() * 1000L);
+        if (cacheEntry.isExpirable())
+        {
+            expiries.add(cacheEntry, cacheEntry.expiresAt(expiryMaxStale));
+        }
         PendingCacheEntries result = this.uncommittedRequests.remove(requestUrlHash);
         if (result != null)
         {
@@ -144,23 +220,165 @@ public class Cache
         }
     }
 
+    private void evictVictim(
+        CacheableRequest request)
+    {
+        final CacheEntry victim = request.victim();
+        if (victim != null && cachedEntries.get(victim.requestUrl()) == victim)
+        {
+            evictions.getAsLong();
+            eviction.evicted(victim.requestUrl());
+            ghost.departed(victim.requestUrl());
+            purge(victim);
+        }
+    }
+
     public boolean handleInitialRequest(
             int requestURLHash,
             ListFW<HttpHeaderFW> request,
             short authScope,
             CacheableRequest cacheableRequest)
     {
+        admission.record(requestURLHash);
         final CacheEntry cacheEntry = cachedEntries.get(requestURLHash);
+        ghost.accessed(requestURLHash, cacheEntry == null);
         if (cacheEntry != null)
         {
-            return serveRequest(cacheEntry, request, authScope, cacheableRequest);
+            final boolean served = serveRequest(cacheEntry, request, authScope, cacheableRequest);
+            if (served)
+            {
+                events.record(EventLog.HIT, requestURLHash, authScope, cacheEntry.size(), 0L);
+            }
+            else
+            {
+                if (events.isEnabled())
+                {
+                    events.record(cacheEntry.missReason(request, authScope), requestURLHash, authScope, 0, 0L);
+                }
+                if (cacheEntry.canServeStaleIfError(request, authScope))
+                {
+                    cacheableRequest.fallback(cacheEntry);
+                }
+            }
+            return served;
         }
         else
         {
+            events.record(EventLog.MISS_ABSENT, requestURLHash, authScope, 0, 0L);
             return false;
         }
     }
 
+    public int cachedResponseSize(
+        int requestURLHash)
+    {
+        final CacheEntry cacheEntry = cachedEntries.get(requestURLHash);
+        return cacheEntry != null ? cacheEntry.responseSize() : 0;
+    }
+
+    public boolean admit(
+        CacheableRequest request)
+    {
+        final int requestURLHash = request.requestURLHash();
+        boolean admitted = cachedEntries.containsKey(requestURLHash) || !admission.isTight();
+        if (!admitted)
+        {
+            if (eviction.isEmpty())
+            {
+                admitted = admission.admit(requestURLHash);
+            }
+            else
+            {
+                final int victim = eviction.victim();
+                final CacheEntry victimEntry = cachedEntries.get(victim);
+                if (victimEntry == null)
+                {
+                    // policy out of step with the cache, so there is nothing to give up for this entry
+                    eviction.removed(victim);
+                    admitted = admission.admit(requestURLHash);
+                }
+                else
+                {
+                    admitted = admission.admit(requestURLHash, victim);
+                    if (admitted)
+                    {
+                        // evicted only once the admitted response is committed
+                        request.victim(victimEntry);
+                    }
+                }
+            }
+            if (!admitted)
+            {
+                ghost.departed(requestURLHash);
+                events.record(EventLog.ADMISSION_REJECTED, requestURLHash, request.authScope(), 0,
+                        request.originLatency() * 1000L);
+            }
+        }
+        return admitted;
+    }
+
+    public void originResponded(
+        CacheableRequest request,
+        ListFW<HttpHeaderFW> responseHeaders)
+    {
+        final long latency = System.currentTimeMillis() - request.connectedAt();
+        request.originLatency(latency);
+        recordSince(counters.route(request.connectRef()).originTtfb, request.connectedNanos());
+        if (CacheUtils.isServerError(responseHeaders))
+        {
+            request.originFailed(true);
+            health.failed(request.connectRef(), latency);
+        }
+        else
+        {
+            health.succeeded(request.connectRef(), latency);
+        }
+    }
+
+    public void refreshed(
+        CacheableRequest request)
+    {
+        recordSince(refreshHistogram, request.connectedNanos());
+    }
+
+    void recordSince(
+        int histogram,
+        long startedNanos)
+    {
+        histograms.record(histogram, (System.nanoTime() - startedNanos) / 1000L);
+    }
+
+    public void originFailed(
+        CacheableRequest request)
+    {
+        request.originFailed(true);
+        health.failed(request.connectRef(), System.currentTimeMillis() - request.connectedAt());
+    }
+
+    public boolean shortCircuit(
+        CacheableRequest request)
+    {
+        return health.shortCircuit(request.connectRef(), System.currentTimeMillis());
+    }
+
+    public boolean handleRevalidationRequest(
+        int requestURLHash,
+        ListFW<HttpHeaderFW> requestHeaders,
+        short authScope,
+        CacheableRequest request)
+    {
+        admission.record(requestURLHash);
+        final CacheEntry cacheEntry = cachedEntries.get(requestURLHash);
+        return cacheEntry != null && cacheEntry.revalidateFor(request, requestHeaders, authScope);
+    }
+
+    public boolean serveStaleIfError(
+        CacheableRequest request)
+    {
+        final CacheEntry fallback = request.fallback();
+        return fallback != null && fallback.serveClientOnError(request);
+    }
+
     public void handleOnUpdateRequest(
             int requestURLHash,
             OnUpdateRequest onUpdateRequest,
@@ -184,7 +402,15 @@ public class Cache
         }
         else if (cacheEntry.isUpdateRequestForThisEntry(requestHeaders))
         {
-            cacheEntry.subscribeToUpdate(onUpdateRequest);
+            if (!cacheEntry.subscribeToUpdate(onUpdateRequest))
+            {
+                // entry does not poll, so no update would ever answer this request
+                final MessageConsumer acceptReply = onUpdateRequest.acceptReply();
+                final long acceptReplyStreamId = onUpdateRequest.acceptReplyStreamId();
+                final long acceptCorrelationId = onUpdateRequest.acceptCorrelationId();
+                writer.do503AndAbort(acceptReply, acceptReplyStreamId, acceptCorrelationId);
+                onUpdateRequest.purge(subscriberBufferPool);
+            }
         }
         else if (cacheEntry.canServeRequest(requestHeaders, authScope))
         {
@@ -207,24 +433,180 @@ public class Cache
     {
         if (entry.canServeRequest(request, authScope))
         {
+            eviction.accessed(entry.requestUrl());
             entry.serveClient(cacheableRequest);
             return true;
         }
         return false;
     }
 
+    public boolean unsubscribe(
+        long acceptReplyStreamId)
+    {
+        final SubscriberList.Subscription subscription = subscriptions.remove(acceptReplyStreamId);
+        if (subscription != null)
+        {
+            subscription.unsubscribe();
+        }
+        return subscription != null;
+    }
+
+    public int subscriberCount()
+    {
+        return subscriptions.size();
+    }
+
     public void notifyUncommitted(CacheableRequest request)
     {
         if (request.getType() == Request.Type.INITIAL_REQUEST)
         {
-            this.uncommittedRequests.computeIfAbsent(request.requestURLHash(), p -> new PendingCacheEntries(request));
+            this.uncommittedRequests.computeIfAbsent(request.requestURLHash(), p -> new PendingCacheEntries(request, this));
+        }
+    }
+
+    /**
+     * Purges up to limit entries that can no longer serve any request, returning their slots to the pool.
+     *
+     * @return the number of entries examined
+     */
+    public int sweep(
+        int limit)
+    {
+        return expiries.sweep(System.currentTimeMillis(), limit, this::expire);
+    }
+
+    private void expire(
+        CacheEntry entry)
+    {
+        if (!entry.isPurged() && cachedEntries.get(entry.requestUrl()) == entry)
+        {
+            final long now = System.currentTimeMillis();
+            if (entry.isRevalidating())
+            {
+                expiries.add(entry, now + expiries.bucketMillis());
+            }
+            else if (entry.isExpirable())
+            {
+                final long expiresAt = entry.expiresAt(expiryMaxStale);
+                if (expiresAt > now)
+                {
+                    expiries.add(entry, expiresAt);
+                }
+                else
+                {
+                    expirations.getAsLong();
+                    ghost.departed(entry.requestUrl());
+                    purge(entry);
+                }
+            }
         }
     }
 
     public void purge(CacheEntry entry)
     {
-        this.cachedEntries.remove(entry.requestUrl());
+        final int requestURLHash = entry.requestUrl();
+        if (cachedEntries.get(requestURLHash) == entry)
+        {
+            cachedEntries.remove(requestURLHash);
+            cachedURLs.remove(requestURLHash);
+            cachedTags.remove(requestURLHash);
+            cachedScopes.remove(entry.authScope(), requestURLHash);
+            eviction.removed(requestURLHash);
+        }
         entry.purge();
     }
 
+    /**
+     * Purges the entries cached for this url in every authorization scope.
+     *
+     * @return the number of entries purged
+     */
+    public int purgeURL(
+        String url)
+    {
+        purgeCandidates.clear();
+        cachedURLs.collect(url, purgeCandidates);
+        return purgeCandidates();
+    }
+
+    /**
+     * Purges the entries cached for any url starting with this prefix in every authorization scope.
+     *
+     * @return the number of entries purged
+     */
+    public int purgePrefix(
+        String prefix)
+    {
+        purgeCandidates.clear();
+        cachedURLs.collectPrefix(prefix, purgeCandidates);
+        return purgeCandidates();
+    }
+
+    /**
+     * Purges every entry cached for this authorization scope.
+     *
+     * @return the number of entries purged
+     */
+    public int purgeAuthScope(
+        int authScope)
+    {
+        purgeCandidates.clear();
+        cachedScopes.collect(authScope, purgeCandidates);
+        return purgeCandidates();
+    }
+
+    /**
+     * Purges every entry tagged with this {@code Surrogate-Key} tag.
+     *
+     * @return the number of entries purged
+     */
+    public int purgeTag(
+        String tag)
+    {
+        purgeCandidates.clear();
+        cachedTags.collect(tag, purgeCandidates);
+        return purgeCandidates();
+    }
+
+    /**
+     * Marks every entry tagged with this {@code Surrogate-Key} tag stale, keeping it to revalidate against
+     * or to answer under stale-if-error.
+     *
+     * @return the number of entries marked stale
+     */
+    public int softPurgeTag(
+        String tag)
+    {
+        purgeCandidates.clear();
+        cachedTags.collect(tag, purgeCandidates);
+        int purged = 0;
+        for (int i = 0; i < purgeCandidates.size(); i++)
+        {
+            final CacheEntry entry = cachedEntries.get(purgeCandidates.getInt(i));
+            if (entry != null)
+            {
+                entry.softPurge();
+                counters.softPurged.getAsLong();
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    private int purgeCandidates()
+    {
+        int purged = 0;
+        for (int i = 0; i < purgeCandidates.size(); i++)
+        {
+            final CacheEntry entry = cachedEntries.get(purgeCandidates.getInt(i));
+            if (entry != null)
+            {
+                purge(entry);
+                counters.purged.getAsLong();
+                purged++;
+            }
+        }
+        return purged;
+    }
+
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
+
+/**
+ * Counters describing how requests are answered, all readable through {@code HttpCacheController.count}.
+ * Gauges are published as the difference of two counters, such as {@code subscriber.subscribes} and
+ * {@code subscriber.unsubscribes}.  Requests, hits and misses are also counted per connect route as
+ * {@code route.<ref>.requests}, {@code route.<ref>.hits} and {@code route.<ref>.misses}, alongside the
+ * {@code route.<ref>.origin.ttfb} latency histogram, all registered when the route is added.
+ */
+public final class CacheCounters
+{
+    public final LongSupplier requests;
+    public final LongSupplier hits;
+    public final LongSupplier staleHits;
+    public final LongSupplier misses;
+    public final LongSupplier collapsed;
+    public final LongSupplier revalidations;
+    public final LongSupplier notModified;
+    public final LongSupplier refreshRequests;
+    public final LongSupplier subscribes;
+    public final LongSupplier unsubscribes;
+    public final LongSupplier proxied;
+    public final LongSupplier uncacheable;
+    public final LongSupplier purged;
+    public final LongSupplier softPurged;
+
+    private final Function<String, LongSupplier> supplyCounter;
+    private final LatencyHistograms histograms;
+    private final Long2ObjectHashMap<RouteCounters> routes;
+    private final LongFunction<RouteCounters> newRouteCounters;
+
+    public CacheCounters(
+        Function<String, LongSupplier> supplyCounter,
+        LatencyHistograms histograms)
+    {
+        this.requests = supplyCounter.apply("cache.requests");
+        this.hits = supplyCounter.apply("cache.hits");
+        this.staleHits = supplyCounter.apply("cache.hits.stale");
+        this.misses = supplyCounter.apply("cache.misses");
+        this.collapsed = supplyCounter.apply("cache.collapsed");
+        this.revalidations = supplyCounter.apply("cache.revalidations");
+        this.notModified = supplyCounter.apply("cache.not.modified");
+        this.refreshRequests = supplyCounter.apply("refresh.requests");
+        this.subscribes = supplyCounter.apply("subscriber.subscribes");
+        this.unsubscribes = supplyCounter.apply("subscriber.unsubscribes");
+        this.proxied = supplyCounter.apply("proxy.requests");
+        this.uncacheable = supplyCounter.apply("origin.responses.uncacheable");
+        this.purged = supplyCounter.apply("cache.purged");
+        this.softPurged = supplyCounter.apply("cache.purged.soft");
+        this.supplyCounter = supplyCounter;
+        this.histograms = histograms;
+        this.routes = new Long2ObjectHashMap<>();
+        this.newRouteCounters = RouteCounters::new;
+    }
+
+    public RouteCounters route(
+        long connectRef)
+    {
+        return routes.computeIfAbsent(connectRef, newRouteCounters);
+    }
+
+    public final class RouteCounters
+    {
+        public final LongSupplier requests;
+        public final LongSupplier hits;
+        public final LongSupplier misses;
+        public final int originTtfb;
+
+        private RouteCounters(
+            long connectRef)
+        {
+            final String prefix = "route." + connectRef;
+            this.requests = supplyCounter.apply(prefix + ".requests");
+            this.hits = supplyCounter.apply(prefix + ".hits");
+            this.misses = supplyCounter.apply(prefix + ".misses");
+            this.originTtfb = histograms.supply(prefix + ".origin.ttfb");
+        }
+    }
+}
@@ -32,6 +32,8 @@ public final class CacheDirectives
     public static final String ONLY_IF_CACHED = "only-if-cached";
     public static final String MAX_STALE = "max-stale";
     public static final String MIN_FRESH = "min-fresh";
+    public static final String STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+    public static final String STALE_IF_ERROR = "stale-if-error";
 
     private CacheDirectives()
     {
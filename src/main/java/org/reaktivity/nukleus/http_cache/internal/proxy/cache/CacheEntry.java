@@ -21,21 +21,32 @@ import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_AGE;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MAX_STALE;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.MIN_FRESH;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.STALE_IF_ERROR;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.STALE_WHILE_REVALIDATE;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives.S_MAXAGE;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheEntryState.CANT_REFRESH;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheEntryState.CAN_REFRESH;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheEntryState.REFRESHING;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheEntryState.REVALIDATING;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.sameAuthorizationScope;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.SurrogateControl.getSurrogateAge;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.SurrogateControl.getSurrogateFreshnessExtension;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.DATE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.ETAG;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.EXPIRES;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.IF_NONE_MATCH;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.LAST_MODIFIED;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.VARY;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.WARNING;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
 
 import java.text.SimpleDateFormat;
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.List;
+import java.util.Deque;
 import java.util.function.Consumer;
 
 import org.agrona.DirectBuffer;
@@ -46,6 +57,8 @@ import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheRefreshRequ
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheableRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.OnUpdateRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EgressBudget;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
@@ -54,10 +67,14 @@ import org.reaktivity.nukleus.http_cache.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.WindowFW;
 
-public final class CacheEntry
+public final class CacheEntry implements RefreshDispatcher.Refreshable
 {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
 
+    private static final Runnable NO_COMPLETION = () ->
+    {
+    };
+
     private final CacheControl cacheControlFW = new CacheControl();
 
     private final Cache cache;
@@ -68,7 +85,7 @@ public final class CacheEntry
 
     private final CacheableRequest cachedRequest;
 
-    private List<OnUpdateRequest> subscribers = new ArrayList<OnUpdateRequest>(); // TODO, lazy init
+    private final SubscriberList subscribers;
 
     boolean expectSubscribers;
 
@@ -78,6 +95,14 @@ public final class CacheEntry
 
     private long pollAt = -1;
 
+    private int freshnessExtension;
+    private DirectBuffer updatedResponseHeaders;
+    private DirectBuffer mergedResponseHeaders;
+
+    private AdaptiveRefresh refresh = new AdaptiveRefresh();
+    private final EarlyRefresh early = new EarlyRefresh();
+    private Deque<CacheableRequest> revalidators;
+
     public CacheEntry(
             Cache cache,
             CacheableRequest request,
@@ -85,12 +110,17 @@ public final class CacheEntry
     {
         this.cache = cache;
         this.cachedRequest = request;
+        this.subscribers = new SubscriberList(cache);
         this.expectSubscribers = expectSubscribers;
         this.state = CacheEntryState.INITIALIZED;
     }
 
     public void commit()
     {
+        encodeResponseHeaders();
+        subscribers.varyBy(getHeader(getCachedResponseHeaders(), VARY));
+        early.fetched(System.currentTimeMillis() - cachedRequest.connectedAt());
+
         final int freshnessExtension = getSurrogateFreshnessExtension(getCachedResponseHeaders());
         if (freshnessExtension > 0)
         {
@@ -109,15 +139,17 @@ public final class CacheEntry
         {
             this.state = CacheEntryState.REFRESHING;
             int surrogateMaxAge = getSurrogateAge(getCachedResponseHeaders());
+            long interval = refresh.nextInterval(surrogateMaxAge * 1000L, freshnessExtension * 1000L, cache.random.nextDouble());
+            interval += cache.health.backoff(cachedRequest.connectRef());
             if (this.pollAt == -1)
             {
-                this.pollAt = Instant.now().plusSeconds(surrogateMaxAge).toEpochMilli();
+                this.pollAt = Instant.now().toEpochMilli() + interval;
             }
             else
             {
-                this.pollAt += surrogateMaxAge * 1000;
+                this.pollAt += interval;
             }
-            cache.scheduler.accept(pollAt, this::sendRefreshRequest);
+            cache.refreshes.schedule(this, cachedRequest.connectRef(), pollAt);
             expectSubscribers = false;
         }
         else
@@ -126,24 +158,38 @@ public final class CacheEntry
         }
     }
 
-    private void sendRefreshRequest()
+    @Override
+    public boolean sendRefreshRequest(
+        Runnable onRefreshed)
     {
-        if (this.state != CacheEntryState.PURGED)
+        final boolean sent = this.state != CacheEntryState.PURGED;
+        if (sent)
         {
             MessageConsumer connect = cachedRequest.connect();
             long connectStreamId = cachedRequest.supplyStreamId().getAsLong();
             long connectRef = cachedRequest.connectRef();
             long connectCorrelationId = cachedRequest.supplyCorrelationId().getAsLong();
             ListFW<HttpHeaderFW> requestHeaders = getCachedRequest();
-            final String etag = this.cachedRequest.etag();
+
+            // revalidate entries without an origin etag by modification date instead, when known
+            String validatorName = IF_NONE_MATCH;
+            String validator = this.cachedRequest.etag();
+            final ListFW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
+            if (this.state == REVALIDATING && getHeader(responseHeaders, ETAG) == null)
+            {
+                final String lastModified = getHeader(responseHeaders, LAST_MODIFIED);
+                if (lastModified != null)
+                {
+                    validatorName = IF_MODIFIED_SINCE;
+                    validator = lastModified;
+                }
+            }
+
             cache.writer.doHttpBegin(connect, connectStreamId, connectRef, connectCorrelationId,
-                    builder ->
-                        {
-                            requestHeaders.forEach(
-                                    h ->  builder.item(item -> item.name(h.name()).value(h.value())));
-                            builder.item(item -> item.name(HttpHeaders.IF_NONE_MATCH).value(etag));
-                        });
+                    requestHeaders, validatorName, validator);
             cache.writer.doHttpEnd(connect, connectStreamId);
+            cache.counters.refreshRequests.getAsLong();
+            cache.hotKeys.fetched(cachedRequest.requestURLHash(), null);
 
             // duplicate request into new slot (TODO optimize to single request)
             int newSlot = cache.requestBufferPool.acquire(connectStreamId);
@@ -159,10 +205,12 @@ public final class CacheEntry
                     newSlot,
                     cache.etagSupplier.get(),
                     this,
-                    this.cache);
+                    this.cache,
+                    onRefreshed);
             this.pollingRequest = refreshRequest;
             cache.correlations.put(connectCorrelationId, refreshRequest);
         }
+        return sent;
     }
 
     private void handleEndOfStream(
@@ -188,12 +236,35 @@ public final class CacheEntry
         streamCorrelation.purge(cache.requestBufferPool);
     }
 
-    private void sendResponseToClient(
-            AnswerableByCacheRequest request,
-            boolean injectWarnings)
+    /**
+     * Serves this entry in place of a failed origin response, marked with a revalidation failed warning,
+     * provided it is still within its stale-if-error window.
+     */
+    public boolean serveClientOnError(
+        AnswerableByCacheRequest request)
+    {
+        final ListFW<HttpHeaderFW> requestHeaders = request.getRequestHeaders(cache.requestHeadersRO, cache.requestBufferPool);
+        final boolean served = this.state != CacheEntryState.PURGED && satisfiesStaleIfError(requestHeaders, Instant.now());
+        if (served)
+        {
+            attachClient(request);
+            this.cache.writer.doHttpBegin(
+                    request.acceptReply(),
+                    request.acceptReplyStreamId(),
+                    request.acceptRef(),
+                    request.acceptCorrelationId(),
+                    getCachedResponseHeaders(),
+                    WARNING,
+                    Cache.REVALIDATION_FAILED);
+            request.purge(cache.requestBufferPool);
+        }
+        return served;
+    }
+
+    private void attachClient(
+        AnswerableByCacheRequest request)
     {
         addClient();
-        ListFW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
 
         ServeFromCacheStream serveFromCacheStream = new ServeFromCacheStream(
                 request,
@@ -202,9 +273,13 @@ public final class CacheEntry
                 cachedRequest.responseSize(),
                 this::handleEndOfStream);
         request.setThrottle(serveFromCacheStream);
+    }
 
-        Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> headers = x -> responseHeaders
-                .forEach(h -> x.item(y -> y.representation((byte) 0).name(h.name()).value(h.value())));
+    private void sendResponseToClient(
+            AnswerableByCacheRequest request,
+            boolean injectWarnings)
+    {
+        attachClient(request);
 
         final MessageConsumer acceptReply = request.acceptReply();
         long acceptReplyStreamId = request.acceptReplyStreamId();
@@ -212,42 +287,259 @@ public final class CacheEntry
         long acceptCorrelationId = request.acceptCorrelationId();
 
         // TODO should reduce freshness extension by how long it has aged
-        int freshnessExtension = SurrogateControl.getSurrogateFreshnessExtension(responseHeaders);
         if (freshnessExtension > 0 && this.state == REFRESHING || this.state == CAN_REFRESH)
         {
             expectSubscribers = true;
-            this.cache.writer.doHttpResponseWithUpdatedCacheControl(
-                    acceptReply,
-                    acceptReplyStreamId,
-                    acceptReplyRef,
-                    acceptCorrelationId,
-                    cacheControlFW,
-                    responseHeaders,
-                    freshnessExtension,
-                    cachedRequest.etag());
+            this.cache.writer.doHttpBegin(acceptReply, acceptReplyStreamId, acceptReplyRef, acceptCorrelationId,
+                    updatedResponseHeaders, 0, updatedResponseHeaders.capacity());
 
             this.cache.writer.doHttpPushPromise(
                     request,
-                    responseHeaders,
+                    getCachedResponseHeaders(),
                     freshnessExtension,
                     cachedRequest.etag());
         }
-        else
+        else if (injectWarnings && isStale())
         {
+            cache.counters.staleHits.getAsLong();
             // TODO inject stale on above if (freshnessExtension > 0)?
-            if (injectWarnings && isStale())
-            {
-                headers = headers.andThen(
-                        x ->  x.item(h -> h.representation((byte) 0).name(WARNING).value(Cache.RESPONSE_IS_STALE))
-                );
-            }
-            this.cache.writer.doHttpBegin(acceptReply, acceptReplyStreamId, acceptReplyRef, acceptCorrelationId, headers);
+            this.cache.writer.doHttpBegin(acceptReply, acceptReplyStreamId, acceptReplyRef, acceptCorrelationId,
+                    getCachedResponseHeaders(), WARNING, Cache.RESPONSE_IS_STALE);
+        }
+        else
+        {
+            final ListFW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
+            this.cache.writer.doHttpBegin(acceptReply, acceptReplyStreamId, acceptReplyRef, acceptCorrelationId,
+                    responseHeaders.buffer(), responseHeaders.offset(), responseHeaders.sizeof());
         }
 
         if(this.state == CacheEntryState.CAN_REFRESH)
         {
             pollBackend();
         }
+        else if (this.state == CANT_REFRESH && isStale() && staleWhileRevalidate() > 0)
+        {
+            revalidate();
+        }
+        else if (this.state == CANT_REFRESH && refreshEarly())
+        {
+            revalidate();
+        }
+    }
+
+    private boolean refreshEarly()
+    {
+        final long now = System.currentTimeMillis();
+        early.hit(now);
+        return early.shouldRefresh(now, staleAt().toEpochMilli(), 1.0 - cache.random.nextDouble());
+    }
+
+    private void revalidate()
+    {
+        this.state = REVALIDATING;
+        cache.counters.revalidations.getAsLong();
+        cache.refreshes.schedule(this, cachedRequest.connectRef(), Instant.now().toEpochMilli());
+    }
+
+    public boolean isRevalidating()
+    {
+        return this.state == REVALIDATING;
+    }
+
+    /**
+     * The origin confirmed the entry is unmodified, so freshness restarts from now.
+     */
+    private void revalidated()
+    {
+        if (this.state == REVALIDATING)
+        {
+            this.state = CANT_REFRESH;
+            handOffRevalidators(this);
+        }
+    }
+
+    /**
+     * Applies a 304 Not Modified for this entry.  Headers the origin updated are merged into the entry's own
+     * copy of its response headers, the payload stays where it is, and the freshness clock restarts.
+     */
+    public void notModified(
+        CacheableRequest request,
+        ListFW<HttpHeaderFW> notModifiedHeaders)
+    {
+        if (this.state != CacheEntryState.PURGED)
+        {
+            cache.counters.notModified.getAsLong();
+            mergeResponseHeaders(notModifiedHeaders);
+            cachedRequest.notModified(notModifiedHeaders);
+            encodeResponseHeaders();
+
+            this.lazyInitiatedResponseStaleAt = null;
+            this.lazyInitiatedResponseReceivedAt = getHeader(notModifiedHeaders, DATE) == null ? Instant.now() : null;
+
+            if (this.state == REVALIDATING)
+            {
+                revalidated();
+            }
+            else
+            {
+                refresh(request);
+            }
+        }
+    }
+
+    private void mergeResponseHeaders(
+        ListFW<HttpHeaderFW> notModifiedHeaders)
+    {
+        final ListFW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
+        this.mergedResponseHeaders = cache.writer.encodeHttpBeginEx(x ->
+        {
+            responseHeaders.forEach(h ->
+            {
+                final String name = h.name().asString();
+                if (!isUpdatedByNotModified(name) || getHeader(notModifiedHeaders, name) == null)
+                {
+                    x.item(y -> y.representation((byte) 0).name(h.name()).value(h.value()));
+                }
+            });
+            notModifiedHeaders.forEach(h ->
+            {
+                if (isUpdatedByNotModified(h.name().asString()))
+                {
+                    x.item(y -> y.representation((byte) 0).name(h.name()).value(h.value()));
+                }
+            });
+        });
+    }
+
+    private static boolean isUpdatedByNotModified(
+        String name)
+    {
+        switch (name)
+        {
+            case DATE:
+            case CACHE_CONTROL:
+            case EXPIRES:
+            case ETAG:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Collapses a request that must be revalidated (no-cache or max-age=0) onto a single conditional request
+     * for this entry, to be answered from cache once the origin confirms it or from its replacement.
+     */
+    public boolean revalidateFor(
+        CacheableRequest request,
+        ListFW<HttpHeaderFW> requestHeaders,
+        short authScope)
+    {
+        final boolean revalidating = (this.state == CANT_REFRESH || this.state == REVALIDATING) &&
+                canBeServedToAuthorized(requestHeaders, authScope) &&
+                doesNotVaryBy(requestHeaders);
+        if (revalidating)
+        {
+            if (revalidators == null)
+            {
+                revalidators = new ArrayDeque<>();
+            }
+            revalidators.add(request);
+
+            if (this.state == CANT_REFRESH)
+            {
+                this.state = REVALIDATING;
+                cache.counters.revalidations.getAsLong();
+                sendRefreshRequest(NO_COMPLETION);
+            }
+            else
+            {
+                cache.counters.collapsed.getAsLong();
+            }
+        }
+        return revalidating;
+    }
+
+    void handOffRevalidators(
+        CacheEntry entry)
+    {
+        while (revalidators != null && !revalidators.isEmpty())
+        {
+            entry.serveClient(revalidators.poll());
+        }
+    }
+
+    private void failRevalidators()
+    {
+        while (revalidators != null && !revalidators.isEmpty())
+        {
+            final CacheableRequest request = revalidators.poll();
+            if (!serveClientOnError(request))
+            {
+                cache.writer.do503AndAbort(request.acceptReply(), request.acceptReplyStreamId(), request.acceptCorrelationId());
+                request.purge(cache.requestBufferPool);
+            }
+        }
+    }
+
+    private void reproxyRevalidators()
+    {
+        while (revalidators != null && !revalidators.isEmpty())
+        {
+            final CacheableRequest request = revalidators.poll();
+            final MessageConsumer connect = cachedRequest.connect();
+            final long connectRef = cachedRequest.connectRef();
+            final long connectStreamId = request.supplyStreamId().getAsLong();
+            final long connectCorrelationId = request.supplyCorrelationId().getAsLong();
+            final ListFW<HttpHeaderFW> requestHeaders =
+                    request.getRequestHeaders(cache.requestHeadersRO, cache.requestBufferPool);
+
+            request.connect(connect, connectRef);
+            cache.writer.doHttpBegin(connect, connectStreamId, connectRef, connectCorrelationId, requestHeaders);
+            cache.writer.doHttpEnd(connect, connectStreamId);
+            cache.correlations.put(connectCorrelationId, request);
+        }
+    }
+
+    /**
+     * The origin failed to answer revalidation, so keep serving the entry while its window allows and let
+     * a later request try again.
+     */
+    public void revalidationFailed()
+    {
+        if (this.state == REVALIDATING)
+        {
+            this.state = CANT_REFRESH;
+            failRevalidators();
+        }
+    }
+
+    /**
+     * The origin answered revalidation with a response that does not replace this entry, so send each
+     * waiting request on to the origin to be answered in full.
+     */
+    public void revalidationNotStored()
+    {
+        if (this.state == REVALIDATING)
+        {
+            this.state = CANT_REFRESH;
+            reproxyRevalidators();
+        }
+    }
+
+    private void encodeResponseHeaders()
+    {
+        final ListFW<HttpHeaderFW> responseHeaders = getCachedResponseHeaders();
+
+        this.freshnessExtension = getSurrogateFreshnessExtension(responseHeaders);
+        if (freshnessExtension > 0)
+        {
+            this.updatedResponseHeaders = cache.writer.encodeResponseWithUpdatedCacheControl(
+                    cacheControlFW,
+                    responseHeaders,
+                    freshnessExtension,
+                    cachedRequest.etag());
+        }
     }
 
     public void purge()
@@ -257,12 +549,13 @@ public final class CacheEntry
             case PURGED:
                 break;
             default:
+                reproxyRevalidators();
                 this.state = CacheEntryState.PURGED;
                 if (clientCount == 0)
                 {
                     cachedRequest.purge(cache.cachedRequestBufferPool);
                 }
-                subscribers.stream().forEach(s ->
+                subscribers.drain(s ->
                 {
                     MessageConsumer acceptReply = s.acceptReply();
                     long acceptReplyStreamId = s.acceptReplyStreamId();
@@ -270,7 +563,6 @@ public final class CacheEntry
                     cache.writer.do503AndAbort(acceptReply, acceptReplyStreamId, acceptCorrelationId);
                     s.purge(cache.subscriberBufferPool);
                 });
-                subscribers.clear();
                 break;
         }
     }
@@ -278,12 +570,17 @@ public final class CacheEntry
     class ServeFromCacheStream implements MessageConsumer
     {
         private final Request request;
+        private final Runnable resume;
         private int payloadWritten;
         private int responseSlot;
         private int responseHeaderSize;
         private int responseSize;
         private MessageConsumer onEnd;
+        private final long startedNanos;
         private int budget;
+        private int padding;
+        private boolean deferred;
+        private boolean closed;
 
          ServeFromCacheStream(
             Request request,
@@ -294,10 +591,12 @@ public final class CacheEntry
         {
             this.payloadWritten = 0;
             this.request = request;
+            this.resume = this::resume;
             this.responseSlot = responseSlot;
             this.responseHeaderSize = responseHeaderSize;
             this.responseSize = responseSize - responseHeaderSize;
             this.onEnd = onEnd;
+            this.startedNanos = System.nanoTime();
         }
 
         public void accept(
@@ -314,6 +613,7 @@ public final class CacheEntry
                     break;
                 case ResetFW.TYPE_ID:
                 default:
+                    this.closed = true;
                     this.onEnd.accept(msgTypeId, buffer, index, length);
                     break;
             }
@@ -321,22 +621,72 @@ public final class CacheEntry
 
         private void writePayload(int credit, int padding)
         {
-            budget += credit;
-            if (budget > padding)
+            this.budget += credit;
+            this.padding = padding;
+
+            if (!deferred && !closed)
+            {
+                // small responses fit in a single frame and are never queued behind bulk transfers
+                final EgressBudget egress = CacheEntry.this.cache.egress;
+                if (responseSize - payloadWritten <= egress.maxFrameSize() || egress.available())
+                {
+                    writeFrames();
+                }
+                else
+                {
+                    defer();
+                }
+            }
+        }
+
+        private void resume()
+        {
+            this.deferred = false;
+            if (!closed)
+            {
+                writeFrames();
+            }
+        }
+
+        private void defer()
+        {
+            this.deferred = true;
+            CacheEntry.this.cache.egress.defer(resume);
+        }
+
+        private void writeFrames()
+        {
+            final EgressBudget egress = CacheEntry.this.cache.egress;
+            final MutableDirectBuffer buffer = CacheEntry.this.cache.cachedResponseBufferPool.buffer(responseSlot);
+            final MessageConsumer acceptReply = request.acceptReply();
+            final long acceptReplyStreamId = request.acceptReplyStreamId();
+
+            // always write at least one frame per turn, then yield once the cycle is spent or others are waiting
+            do
             {
-                final int toWrite = Math.min(budget - padding, responseSize - payloadWritten);
+                if (budget <= padding || payloadWritten == responseSize)
+                {
+                    break;
+                }
+                final int toWrite = Math.min(Math.min(budget - padding, responseSize - payloadWritten), egress.maxFrameSize());
                 final int offset = responseHeaderSize + payloadWritten;
-                MutableDirectBuffer buffer = CacheEntry.this.cache.cachedResponseBufferPool.buffer(responseSlot);
-                final MessageConsumer acceptReply = request.acceptReply();
-                final long acceptReplyStreamId = request.acceptReplyStreamId();
-                budget -= padding;
                 CacheEntry.this.cache.writer.doHttpData(acceptReply, acceptReplyStreamId, buffer, offset, toWrite);
+                budget -= toWrite + padding;
                 payloadWritten += toWrite;
-                if (payloadWritten == responseSize)
-                {
-                    CacheEntry.this.cache.writer.doHttpEnd(acceptReply, acceptReplyStreamId);
-                    this.onEnd.accept(EndFW.TYPE_ID, buffer, offset, toWrite);
-                }
+                egress.consume(toWrite);
+            }
+            while (egress.available());
+
+            if (payloadWritten == responseSize)
+            {
+                this.closed = true;
+                CacheEntry.this.cache.writer.doHttpEnd(acceptReply, acceptReplyStreamId);
+                CacheEntry.this.cache.recordSince(CacheEntry.this.cache.hitServeHistogram, startedNanos);
+                this.onEnd.accept(EndFW.TYPE_ID, buffer, responseHeaderSize, responseSize);
+            }
+            else if (budget > padding)
+            {
+                defer();
             }
         }
     }
@@ -346,9 +696,11 @@ public final class CacheEntry
         return cachedRequest.getRequestHeaders(cache.cachedRequestHeadersRO, cache.cachedRequestBufferPool);
     }
 
-    private ListFW<HttpHeaderFW> getCachedResponseHeaders()
+    ListFW<HttpHeaderFW> getCachedResponseHeaders()
     {
-        return cachedRequest.getResponseHeaders(cache.cachedResponseHeadersRO, cache.cachedResponseBufferPool);
+        return mergedResponseHeaders != null ?
+            cache.cachedResponseHeadersRO.wrap(mergedResponseHeaders, 0, mergedResponseHeaders.capacity()) :
+            cachedRequest.getResponseHeaders(cache.cachedResponseHeadersRO, cache.cachedResponseBufferPool);
     }
 
     private void addClient()
@@ -468,6 +820,29 @@ public final class CacheEntry
         return lazyInitiatedResponseStaleAt;
     }
 
+    private boolean satisfiesStaleIfError(
+        ListFW<HttpHeaderFW> request,
+        Instant now)
+    {
+        final String requestCacheControlHeaderValue = getHeader(request, CACHE_CONTROL);
+        final CacheControl requestCacheControl = cache.cachedRequestCacheControlFW.parse(requestCacheControlHeaderValue);
+        final String requestStaleIfError = requestCacheControl.getValue(STALE_IF_ERROR);
+        final int requestWindow = requestStaleIfError != null ? parseInt(requestStaleIfError) : 0;
+
+        final String responseStaleIfError = responseCacheControl().getValue(STALE_IF_ERROR);
+        final int responseWindow = responseStaleIfError != null ? parseInt(responseStaleIfError) : 0;
+
+        final int staleIfError = Math.max(requestWindow, responseWindow);
+        return staleIfError > 0 && now.isBefore(staleAt().plusSeconds(staleIfError));
+    }
+
+    private int staleWhileRevalidate()
+    {
+        final CacheControl cacheControl = responseCacheControl();
+        final String staleWhileRevalidate = cacheControl.getValue(STALE_WHILE_REVALIDATE);
+        return staleWhileRevalidate != null ? parseInt(staleWhileRevalidate) : 0;
+    }
+
     private Instant responseReceivedAt()
     {
         if (lazyInitiatedResponseReceivedAt == null)
@@ -511,7 +886,8 @@ public final class CacheEntry
         final boolean doesNotVaryBy = doesNotVaryBy(request);
         final boolean satisfiesFreshnessRequirements = satisfiesFreshnessRequirementsOf(request, now);
         final boolean satisfiesStalenessRequirements = satisfiesStalenessRequirementsOf(request, now)
-                || this.state == CAN_REFRESH || this.state == REFRESHING;
+                || this.state == CAN_REFRESH || this.state == REFRESHING
+                || now.isBefore(staleAt().plusSeconds(staleWhileRevalidate()));
         final boolean satisfiesAgeRequirements = satisfiesAgeRequirementsOf(request, now);
         return canBeServedToAuthorized &&
                 doesNotVaryBy &&
@@ -520,6 +896,68 @@ public final class CacheEntry
                 satisfiesAgeRequirements;
     }
 
+    /**
+     * @return the first {@link EventLog} miss code explaining why {@link #canServeRequest} refused this request
+     */
+    public int missReason(
+        ListFW<HttpHeaderFW> request,
+        short authScope)
+    {
+        int reason = EventLog.MISS_FRESHNESS;
+        if (this.state == CacheEntryState.PURGED)
+        {
+            reason = EventLog.MISS_PURGED;
+        }
+        else if (!canBeServedToAuthorized(request, authScope))
+        {
+            reason = EventLog.MISS_AUTH_SCOPE;
+        }
+        else if (!doesNotVaryBy(request))
+        {
+            reason = EventLog.MISS_VARY;
+        }
+        return reason;
+    }
+
+    public boolean canServeStaleIfError(
+        ListFW<HttpHeaderFW> request,
+        short authScope)
+    {
+        return this.state != CacheEntryState.PURGED &&
+                canBeServedToAuthorized(request, authScope) &&
+                doesNotVaryBy(request) &&
+                satisfiesStaleIfError(request, Instant.now());
+    }
+
+    @Override
+    public boolean isPurged()
+    {
+        return this.state == CacheEntryState.PURGED;
+    }
+
+    boolean isExpirable()
+    {
+        return this.state == CANT_REFRESH;
+    }
+
+    /**
+     * @return when no request tolerating at most maxStale seconds of staleness can be served by this entry,
+     *         including from stale-while-revalidate or stale-if-error
+     */
+    long expiresAt(
+        int maxStale)
+    {
+        final String staleIfError = responseCacheControl().getValue(STALE_IF_ERROR);
+        final int staleIfErrorSeconds = staleIfError != null ? parseInt(staleIfError) : 0;
+        final int staleSeconds = Math.max(maxStale, Math.max(staleWhileRevalidate(), staleIfErrorSeconds));
+        return staleAt().plusSeconds(staleSeconds).toEpochMilli();
+    }
+
+    int responseHeadersSize()
+    {
+        return cachedRequest.responseHeadersSize();
+    }
+
     private boolean isStale()
     {
         return Instant.now().isAfter(staleAt());
@@ -560,11 +998,36 @@ public final class CacheEntry
         return polling;
     }
 
+    /**
+     * Takes over a subscription handed off from the pending entry this entry commits, if this entry polls.
+     */
+    boolean adopt(SubscriberList.Subscription subscription)
+    {
+        final boolean polling = this.state == REFRESHING || this.state == CAN_REFRESH;
+        if (polling)
+        {
+            this.subscribers.adopt(subscription);
+        }
+        if (this.state == CacheEntryState.CAN_REFRESH)
+        {
+            pollBackend();
+        }
+        return polling;
+    }
 
-    public void subscribers(Consumer<OnUpdateRequest> consumer)
+    void subscribers(Consumer<SubscriberList.Bucket> consumer)
     {
-        subscribers.stream().forEach(consumer);
-        subscribers.clear();
+        subscribers.detach(consumer);
+    }
+
+    String[] varyBy()
+    {
+        return subscribers.varyBy();
+    }
+
+    public int subscriberCount()
+    {
+        return subscribers.size();
     }
 
 
@@ -607,10 +1070,23 @@ public final class CacheEntry
     {
         if (request == pollingRequest)
         {
+            refresh.observe(false);
             pollBackend();
         }
     }
 
+    void refreshedFrom(
+        CacheEntry oldEntry,
+        AnswerableByCacheRequest request)
+    {
+        this.refresh = oldEntry.refresh;
+        this.early.inheritHits(oldEntry.early);
+        if (request == oldEntry.pollingRequest)
+        {
+            refresh.observe(true);
+        }
+    }
+
     public boolean expectSubscribers()
     {
         return expectSubscribers || !subscribers.isEmpty();
@@ -621,4 +1097,48 @@ public final class CacheEntry
         return this.cachedRequest.requestURLHash();
     }
 
+    public int size()
+    {
+        return cachedRequest.requestSize() + cachedRequest.responseSize();
+    }
+
+    public int responseSize()
+    {
+        return cachedRequest.responseSize();
+    }
+
+    public long originLatency()
+    {
+        return cachedRequest.originLatency();
+    }
+
+    public String surrogateKeys()
+    {
+        return getHeader(getCachedResponseHeaders(), HttpHeaders.SURROGATE_KEY);
+    }
+
+    /**
+     * Marks the entry stale without removing it, so requests revalidate with the origin as allowed by
+     * stale-while-revalidate, and the entry can still answer under stale-if-error.  Entries kept fresh by
+     * polling the origin are served as before until their next refresh.
+     */
+    public void softPurge()
+    {
+        final Instant now = Instant.now();
+        if (now.isBefore(staleAt()))
+        {
+            lazyInitiatedResponseStaleAt = now;
+        }
+    }
+
+    public String requestURL()
+    {
+        return HttpHeadersUtil.getRequestURL(getCachedRequest());
+    }
+
+    public short authScope()
+    {
+        return cachedRequest.authScope();
+    }
+
 }
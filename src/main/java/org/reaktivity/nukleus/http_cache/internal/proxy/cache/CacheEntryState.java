@@ -21,6 +21,7 @@ public enum CacheEntryState
     CAN_REFRESH,
     CANT_REFRESH,
     REFRESHING,
+    REVALIDATING,
     WAITING_ON_UNCOMMITED,
     PURGED
 }
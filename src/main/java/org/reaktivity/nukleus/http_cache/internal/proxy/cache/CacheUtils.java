@@ -76,6 +76,33 @@ public final class CacheUtils
         });
     }
 
+    public static boolean canBeRevalidatedByCache(
+        ListFW<HttpHeaderFW> headers)
+    {
+        // unconditional no-cache and max-age=0 requests, conditional ones are forwarded for the client to validate
+        return headers.anyMatch(h ->
+                CACHE_CONTROL.equals(h.name().asString()) &&
+                (h.value().asString().contains(CacheDirectives.NO_CACHE) ||
+                 h.value().asString().contains(CacheDirectives.MAX_AGE_0))) &&
+            !headers.anyMatch(h ->
+            {
+                final String name = h.name().asString();
+                final String value = h.value().asString();
+                switch (name)
+                {
+                    case METHOD:
+                        return !HttpMethods.GET.equalsIgnoreCase(value);
+                    case CONTENT_LENGTH:
+                    case TRANSFER_ENCODING:
+                    case HttpHeaders.IF_NONE_MATCH:
+                    case HttpHeaders.IF_MODIFIED_SINCE:
+                        return true;
+                    default:
+                        return false;
+                }
+            });
+    }
+
     public static boolean isCacheableResponse(ListFW<HttpHeaderFW> response)
     {
         if (response.anyMatch(h ->
@@ -169,6 +196,13 @@ public final class CacheUtils
         });
     }
 
+    public static boolean isServerError(
+        ListFW<HttpHeaderFW> responseHeaders)
+    {
+        final String status = getHeader(responseHeaders, STATUS);
+        return status != null && status.length() == 3 && status.charAt(0) == '5';
+    }
+
     public static boolean isMatchByEtag(
         ListFW<HttpHeaderFW> requestHeaders,
         String etag)
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.Int2ObjectHashMap;
+
+/**
+ * Evicts with the CLOCK approximation of least recently used.  The hand sweeps entries in admission order,
+ * giving each entry accessed since the hand last passed a second chance.  Entries form an intrusive ring
+ * and are unlinked as soon as they are removed, so the ring only ever holds cached entries.
+ */
+public final class ClockEvictionPolicy implements EvictionPolicy
+{
+    private final Int2ObjectHashMap<Entry> entries = new Int2ObjectHashMap<>();
+
+    private Entry hand;
+
+    @Override
+    public void admitted(
+        int requestURLHash,
+        int size,
+        long cost)
+    {
+        final Entry entry = entries.get(requestURLHash);
+        if (entry != null)
+        {
+            entry.referenced = true;
+        }
+        else
+        {
+            final Entry newEntry = new Entry(requestURLHash);
+            entries.put(requestURLHash, newEntry);
+            link(newEntry);
+        }
+    }
+
+    @Override
+    public void accessed(
+        int requestURLHash)
+    {
+        final Entry entry = entries.get(requestURLHash);
+        if (entry != null)
+        {
+            entry.referenced = true;
+        }
+    }
+
+    @Override
+    public void removed(
+        int requestURLHash)
+    {
+        final Entry entry = entries.remove(requestURLHash);
+        if (entry != null)
+        {
+            unlink(entry);
+        }
+    }
+
+    @Override
+    public void evicted(
+        int requestURLHash)
+    {
+        removed(requestURLHash);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public int victim()
+    {
+        while (hand.referenced)
+        {
+            hand.referenced = false;
+            hand = hand.next;
+        }
+        return hand.requestURLHash;
+    }
+
+    // newly admitted entries are swept last, just behind the hand
+    private void link(
+        Entry entry)
+    {
+        if (hand == null)
+        {
+            entry.prev = entry;
+            entry.next = entry;
+            hand = entry;
+        }
+        else
+        {
+            entry.next = hand;
+            entry.prev = hand.prev;
+            hand.prev.next = entry;
+            hand.prev = entry;
+        }
+    }
+
+    private void unlink(
+        Entry entry)
+    {
+        if (entry.next == entry)
+        {
+            hand = null;
+        }
+        else
+        {
+            if (hand == entry)
+            {
+                hand = entry.next;
+            }
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private static final class Entry
+    {
+        private final int requestURLHash;
+
+        private boolean referenced;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(
+            int requestURLHash)
+        {
+            this.requestURLHash = requestURLHash;
+        }
+    }
+}
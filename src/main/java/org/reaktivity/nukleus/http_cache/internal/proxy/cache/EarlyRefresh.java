@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+/**
+ * Probabilistic early expiration (XFetch) for an entry, so a hot entry is usually revalidated in the background
+ * shortly before it goes stale rather than by the first request after.  A hit refreshes early when
+ * {@code now - fetch * beta * ln(random) >= staleAt}, where fetch is how long the entry took to fetch from origin.
+ * Beta is weighted by how many hits arrive within one fetch time, so entries too cold to stampede are left to
+ * expire normally.
+ */
+public final class EarlyRefresh
+{
+    static final double HIT_INTERVAL_WEIGHT = 0.25;
+    static final double MAX_BETA = 4.0;
+
+    private long fetchMillis;
+    private long lastHitAt = -1L;
+    private double hitIntervalMillis = -1.0;
+
+    public void fetched(
+        long fetchMillis)
+    {
+        this.fetchMillis = fetchMillis;
+    }
+
+    public void hit(
+        long now)
+    {
+        if (lastHitAt != -1L)
+        {
+            final long interval = Math.max(now - lastHitAt, 0L);
+            hitIntervalMillis = hitIntervalMillis < 0.0 ? interval :
+                hitIntervalMillis + HIT_INTERVAL_WEIGHT * (interval - hitIntervalMillis);
+        }
+        lastHitAt = now;
+    }
+
+    public void inheritHits(
+        EarlyRefresh previous)
+    {
+        this.lastHitAt = previous.lastHitAt;
+        this.hitIntervalMillis = previous.hitIntervalMillis;
+    }
+
+    /**
+     * @param now       current time in milliseconds
+     * @param staleAt   when the entry goes stale, in milliseconds
+     * @param random    uniformly distributed in (0, 1]
+     * @return true if this hit should revalidate the entry early
+     */
+    public boolean shouldRefresh(
+        long now,
+        long staleAt,
+        double random)
+    {
+        boolean refresh = false;
+        if (fetchMillis > 0L && hitIntervalMillis >= 0.0 && now < staleAt)
+        {
+            final double hitsPerFetch = fetchMillis / Math.max(hitIntervalMillis, 1.0);
+            final double beta = Math.min(hitsPerFetch, MAX_BETA);
+            refresh = now - fetchMillis * beta * Math.log(random) >= staleAt;
+        }
+        return refresh;
+    }
+}
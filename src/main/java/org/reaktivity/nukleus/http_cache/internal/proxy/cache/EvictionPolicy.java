@@ -0,0 +1,57 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+/**
+ * Chooses which cached entry to give up when the cache slab runs short of slots.  Entries are identified
+ * by request url hash, matching the keys of the cache, and are admitted again when a refreshed response
+ * replaces them.
+ */
+public interface EvictionPolicy
+{
+    String LRU = "lru";
+    String CLOCK = "clock";
+    String GDSF = "gdsf";
+
+    /**
+     * @param requestURLHash  url hash of the entry
+     * @param size            bytes held by the entry
+     * @param cost            milliseconds the origin took to begin its response
+     */
+    void admitted(
+        int requestURLHash,
+        int size,
+        long cost);
+
+    void accessed(
+        int requestURLHash);
+
+    void removed(
+        int requestURLHash);
+
+    /**
+     * Removes the entry because it was chosen as {@link #victim()}, rather than purged or expired.
+     */
+    void evicted(
+        int requestURLHash);
+
+    boolean isEmpty();
+
+    /**
+     * @return url hash of the entry to evict next, only valid when not {@link #isEmpty()}
+     */
+    int victim();
+}
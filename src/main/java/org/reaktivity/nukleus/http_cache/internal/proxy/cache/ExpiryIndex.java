@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Timing wheel of cache entries bucketed by when they expire, so adding an entry is O(1).  Entries are never
+ * removed from their bucket, the sweep callback checks whether an entry is still current and still expired
+ * when its bucket comes due, and adds it again otherwise.  Entries expiring beyond the wheel are held in its
+ * furthest bucket until the wheel turns far enough.
+ *
+ * @param <T> the type of entry
+ */
+public final class ExpiryIndex<T>
+{
+    private final long bucketMillis;
+    private final int mask;
+    private final List<Deque<T>> buckets;
+
+    private long cursor;
+
+    public ExpiryIndex(
+        long bucketMillis,
+        int bucketCount,
+        long now)
+    {
+        this.bucketMillis = bucketMillis;
+        this.mask = bucketCount - 1;
+        this.buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++)
+        {
+            buckets.add(new ArrayDeque<>(1));
+        }
+        this.cursor = now / bucketMillis;
+    }
+
+    public long bucketMillis()
+    {
+        return bucketMillis;
+    }
+
+    public void add(
+        T entry,
+        long expiresAt)
+    {
+        final long bucket = Math.min(Math.max(expiresAt / bucketMillis, cursor), cursor + mask);
+        buckets.get((int) bucket & mask).add(entry);
+    }
+
+    /**
+     * Hands entries from buckets that ended before now to the sweep callback, at most limit entries per call.
+     *
+     * @return the number of entries handed to the sweep callback
+     */
+    public int sweep(
+        long now,
+        int limit,
+        Consumer<T> sweep)
+    {
+        final long due = now / bucketMillis;
+        int workCount = 0;
+        while (cursor < due && workCount < limit)
+        {
+            final Deque<T> bucket = buckets.get((int) cursor & mask);
+            while (workCount < limit && !bucket.isEmpty())
+            {
+                sweep.accept(bucket.poll());
+                workCount++;
+            }
+            if (bucket.isEmpty())
+            {
+                cursor++;
+            }
+        }
+        return workCount;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+
+import java.util.BitSet;
+
+/**
+ * Approximate request frequency by url hash, as a count-min sketch of four bit counters behind a doorkeeper
+ * bloom filter.  The first occurrence of a hash only sets its doorkeeper bits, so one-hit wonders never
+ * reach the sketch.  Once the number of recorded occurrences reaches ten times the table size, all counters
+ * are halved and the doorkeeper is cleared, so frequency reflects recent popularity.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class FrequencySketch
+{
+    static final int MAX_FREQUENCY = 15;
+
+    private static final long[] SEEDS =
+    {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MIN_TABLE_SIZE = 64;
+
+    private final long[] table;
+    private final int tableMask;
+    private final BitSet doorkeeper;
+    private final int doorkeeperMask;
+    private final int sampleSize;
+
+    private int additions;
+
+    public FrequencySketch(
+        int capacity)
+    {
+        final int tableSize = findNextPositivePowerOfTwo(Math.max(capacity, MIN_TABLE_SIZE));
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.doorkeeper = new BitSet(tableSize * Long.SIZE);
+        this.doorkeeperMask = tableSize * Long.SIZE - 1;
+        this.sampleSize = 10 * tableSize;
+    }
+
+    public void increment(
+        int hash)
+    {
+        if (!doorkeeperContains(hash))
+        {
+            doorkeeper.set(doorkeeperIndex(hash, 0));
+            doorkeeper.set(doorkeeperIndex(hash, 1));
+        }
+        else
+        {
+            for (int i = 0; i < SEEDS.length; i++)
+            {
+                incrementAt(hash, i);
+            }
+        }
+
+        if (++additions == sampleSize)
+        {
+            reset();
+        }
+    }
+
+    public int frequency(
+        int hash)
+    {
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++)
+        {
+            final long spread = spread(hash, i);
+            final int shift = counterShift(spread);
+            frequency = Math.min(frequency, (int) ((table[tableIndex(spread)] >>> shift) & 0x0fL));
+        }
+        return doorkeeperContains(hash) ? frequency + 1 : frequency;
+    }
+
+    private void incrementAt(
+        int hash,
+        int depth)
+    {
+        final long spread = spread(hash, depth);
+        final int index = tableIndex(spread);
+        final int shift = counterShift(spread);
+        if (((table[index] >>> shift) & 0x0fL) != MAX_FREQUENCY)
+        {
+            table[index] += 1L << shift;
+        }
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        doorkeeper.clear();
+        additions >>>= 1;
+    }
+
+    private boolean doorkeeperContains(
+        int hash)
+    {
+        return doorkeeper.get(doorkeeperIndex(hash, 0)) && doorkeeper.get(doorkeeperIndex(hash, 1));
+    }
+
+    private int doorkeeperIndex(
+        int hash,
+        int depth)
+    {
+        final long spread = spread(hash, depth);
+        return (int) (spread >>> 32) & doorkeeperMask;
+    }
+
+    private int tableIndex(
+        long spread)
+    {
+        return (int) spread & tableMask;
+    }
+
+    private static int counterShift(
+        long spread)
+    {
+        return (int) ((spread >>> 40) & 0x0fL) << 2;
+    }
+
+    private static long spread(
+        int hash,
+        int depth)
+    {
+        long spread = (hash + SEEDS[depth]) * SEEDS[depth];
+        spread ^= spread >>> 29;
+        return spread;
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.Arrays;
+
+import org.agrona.collections.Long2LongHashMap;
+
+/**
+ * Evicts by GreedyDual-Size-Frequency, keeping the entries that save the most origin time per byte.  Each
+ * entry has priority {@code L + frequency * cost / size}, where cost is the origin latency measured when the
+ * entry was fetched, and the entry with the lowest priority is evicted.  L is raised to the priority of each
+ * evicted entry, so entries that stop being accessed age out relative to newly admitted ones.
+ *
+ * Entries are kept in an array backed min-heap on priority, indexed by url hash, so accesses cost
+ * O(log entries) and allocate nothing once the heap has grown to the number of cached entries.
+ */
+public final class GdsfEvictionPolicy implements EvictionPolicy
+{
+    private static final int NO_SLOT = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Long2LongHashMap slots = new Long2LongHashMap(NO_SLOT);
+
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+    private long[] costs = new long[INITIAL_CAPACITY];
+    private long[] frequencies = new long[INITIAL_CAPACITY];
+    private double[] priorities = new double[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private int count;
+
+    private double inflation;
+    private long sequence;
+
+    @Override
+    public void admitted(
+        int requestURLHash,
+        int size,
+        long cost)
+    {
+        int slot = (int) slots.get(key(requestURLHash));
+        if (slot == NO_SLOT)
+        {
+            if (count == hashes.length)
+            {
+                grow();
+            }
+            slot = count++;
+            hashes[slot] = requestURLHash;
+            frequencies[slot] = 0L;
+            slots.put(key(requestURLHash), slot);
+        }
+        sizes[slot] = Math.max(size, 1);
+        costs[slot] = Math.max(cost, 1L);
+        frequencies[slot]++;
+        prioritize(slot);
+    }
+
+    @Override
+    public void accessed(
+        int requestURLHash)
+    {
+        final int slot = (int) slots.get(key(requestURLHash));
+        if (slot != NO_SLOT)
+        {
+            frequencies[slot]++;
+            prioritize(slot);
+        }
+    }
+
+    @Override
+    public void removed(
+        int requestURLHash)
+    {
+        final int slot = (int) slots.remove(key(requestURLHash));
+        if (slot != NO_SLOT)
+        {
+            remove(slot);
+        }
+    }
+
+    @Override
+    public void evicted(
+        int requestURLHash)
+    {
+        final int slot = (int) slots.remove(key(requestURLHash));
+        if (slot != NO_SLOT)
+        {
+            inflation = Math.max(inflation, priorities[slot]);
+            remove(slot);
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    @Override
+    public int victim()
+    {
+        return hashes[0];
+    }
+
+    double priority(
+        int requestURLHash)
+    {
+        final int slot = (int) slots.get(key(requestURLHash));
+        return slot != NO_SLOT ? priorities[slot] : 0.0;
+    }
+
+    private void prioritize(
+        int slot)
+    {
+        priorities[slot] = inflation + (double) frequencies[slot] * costs[slot] / sizes[slot];
+        sequences[slot] = sequence++;
+        siftDown(siftUp(slot));
+    }
+
+    private void remove(
+        int slot)
+    {
+        final int last = --count;
+        if (slot != last)
+        {
+            move(last, slot);
+            siftDown(siftUp(slot));
+        }
+    }
+
+    private int siftUp(
+        int slot)
+    {
+        int child = slot;
+        while (child > 0 && isLower(child, (child - 1) >> 1))
+        {
+            final int parent = (child - 1) >> 1;
+            swap(parent, child);
+            child = parent;
+        }
+        return child;
+    }
+
+    private void siftDown(
+        int slot)
+    {
+        int parent = slot;
+        int lowest = lowestOf(parent);
+        while (lowest != parent)
+        {
+            swap(parent, lowest);
+            parent = lowest;
+            lowest = lowestOf(parent);
+        }
+    }
+
+    private int lowestOf(
+        int parent)
+    {
+        final int left = 2 * parent + 1;
+        final int right = left + 1;
+        int lowest = parent;
+        if (left < count && isLower(left, lowest))
+        {
+            lowest = left;
+        }
+        if (right < count && isLower(right, lowest))
+        {
+            lowest = right;
+        }
+        return lowest;
+    }
+
+    // ties go to the entry prioritized first
+    private boolean isLower(
+        int i,
+        int j)
+    {
+        final int comparison = Double.compare(priorities[i], priorities[j]);
+        return comparison < 0 || comparison == 0 && sequences[i] < sequences[j];
+    }
+
+    private void swap(
+        int i,
+        int j)
+    {
+        final int hash = hashes[i];
+        final int entrySize = sizes[i];
+        final long cost = costs[i];
+        final long frequency = frequencies[i];
+        final double priority = priorities[i];
+        final long sequence = sequences[i];
+        move(j, i);
+        hashes[j] = hash;
+        sizes[j] = entrySize;
+        costs[j] = cost;
+        frequencies[j] = frequency;
+        priorities[j] = priority;
+        sequences[j] = sequence;
+        slots.put(key(hash), j);
+    }
+
+    private void move(
+        int from,
+        int to)
+    {
+        hashes[to] = hashes[from];
+        sizes[to] = sizes[from];
+        costs[to] = costs[from];
+        frequencies[to] = frequencies[from];
+        priorities[to] = priorities[from];
+        sequences[to] = sequences[from];
+        slots.put(key(hashes[to]), to);
+    }
+
+    private void grow()
+    {
+        final int capacity = hashes.length << 1;
+        hashes = Arrays.copyOf(hashes, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        frequencies = Arrays.copyOf(frequencies, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+    }
+
+    // widened without sign extension, as the map reserves its missing value as a key
+    private static long key(
+        int hash)
+    {
+        return hash & 0xffff_ffffL;
+    }
+}
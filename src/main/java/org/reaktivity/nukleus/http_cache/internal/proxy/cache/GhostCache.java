@@ -0,0 +1,225 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static org.agrona.BitUtil.findNextPositivePowerOfTwo;
+import static org.agrona.BitUtil.isPowerOfTwo;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import org.agrona.collections.Int2IntHashMap;
+
+/**
+ * Metadata only ghost of a larger cache, estimating how many more requests would be hits at 2x, 4x and 8x the
+ * current capacity.  Following SHARDS, only urls whose hash falls in a fixed 1 in N sample are tracked, in an
+ * LRU stack of their url hashes bounded to the sampled share of 8x capacity.  Only urls whose entry has since
+ * been evicted, expired or refused admission are ghosts, since more capacity could not have kept anything
+ * else.  For a sampled request the cache could not find an entry for, if its url is a ghost, the reuse
+ * distance is the number of other sampled urls requested since its previous request.  Scaled up by N, that
+ * is the LRU capacity in entries needed for the request to hit.
+ *
+ * Sampled requests are published in {@code ghost.samples}, those without a cached entry in {@code ghost.misses},
+ * and those misses of ghosts that would hit with k times the capacity in {@code ghost.hits.<k>x}, so the extra
+ * hit ratio at k times the capacity is {@code ghost.hits.<k>x / ghost.samples}.
+ */
+public final class GhostCache
+{
+    static final int[] MULTIPLIERS = { 2, 4, 8 };
+
+    private static final int NO_TIME = -1;
+
+    private final int samplingMask;
+    private final int[] thresholds;
+    private final int maxKeys;
+    private final Int2IntHashMap lastAccessed;
+    private final int[] keys;
+    private final boolean[] ghosts;
+    private final int[] distances;
+    private final LongSupplier samples;
+    private final LongSupplier misses;
+    private final LongSupplier[] hits;
+
+    private int clock;
+    private int oldest;
+
+    public GhostCache(
+        int capacity,
+        int sampling,
+        LongSupplier samples,
+        LongSupplier misses,
+        LongSupplier hits2x,
+        LongSupplier hits4x,
+        LongSupplier hits8x)
+    {
+        if (!isPowerOfTwo(sampling))
+        {
+            throw new IllegalArgumentException("sampling is not a power of 2");
+        }
+        this.samplingMask = sampling - 1;
+        this.thresholds = new int[MULTIPLIERS.length];
+        for (int i = 0; i < MULTIPLIERS.length; i++)
+        {
+            thresholds[i] = (int) Math.ceil((double) MULTIPLIERS[i] * capacity / sampling);
+        }
+        this.maxKeys = Math.max(thresholds[MULTIPLIERS.length - 1], 1);
+        this.lastAccessed = new Int2IntHashMap(NO_TIME);
+        this.keys = new int[findNextPositivePowerOfTwo(2 * maxKeys)];
+        this.ghosts = new boolean[keys.length];
+        this.distances = new int[keys.length + 1];
+        this.samples = samples;
+        this.misses = misses;
+        this.hits = new LongSupplier[] { hits2x, hits4x, hits8x };
+    }
+
+    /**
+     * @param requestURLHash  url hash of the request
+     * @param miss            true if the cache had no entry for the url
+     */
+    public void accessed(
+        int requestURLHash,
+        boolean miss)
+    {
+        if (isSampled(requestURLHash))
+        {
+            samples.getAsLong();
+
+            final int lastAccess = lastAccessed.get(requestURLHash);
+            if (miss)
+            {
+                misses.getAsLong();
+                if (lastAccess != NO_TIME && ghosts[lastAccess])
+                {
+                    final int distance = reuseDistance(lastAccess);
+                    for (int i = 0; i < thresholds.length; i++)
+                    {
+                        if (distance < thresholds[i])
+                        {
+                            hits[i].getAsLong();
+                        }
+                    }
+                }
+            }
+
+            if (lastAccess != NO_TIME)
+            {
+                mark(lastAccess, -1);
+            }
+            else if (lastAccessed.size() == maxKeys)
+            {
+                evictOldest();
+            }
+
+            if (clock == keys.length)
+            {
+                compact();
+            }
+            keys[clock] = requestURLHash;
+            ghosts[clock] = false;
+            lastAccessed.put(requestURLHash, clock);
+            mark(clock, 1);
+            clock++;
+        }
+    }
+
+    /**
+     * Makes a ghost of a url whose entry was evicted, expired or refused admission, so its next miss is
+     * counted if more capacity would have kept it.
+     *
+     * @param requestURLHash  url hash of the entry
+     */
+    public void departed(
+        int requestURLHash)
+    {
+        if (isSampled(requestURLHash))
+        {
+            final int lastAccess = lastAccessed.get(requestURLHash);
+            if (lastAccess != NO_TIME)
+            {
+                ghosts[lastAccess] = true;
+            }
+        }
+    }
+
+    private int reuseDistance(
+        int lastAccess)
+    {
+        return count(clock) - count(lastAccess + 1);
+    }
+
+    private boolean isSampled(
+        int requestURLHash)
+    {
+        return (((requestURLHash * 0x9e3779b9) >>> 16) & samplingMask) == 0;
+    }
+
+    private void evictOldest()
+    {
+        while (lastAccessed.get(keys[oldest]) != oldest)
+        {
+            oldest++;
+        }
+        lastAccessed.remove(keys[oldest]);
+        mark(oldest, -1);
+        oldest++;
+    }
+
+    private void compact()
+    {
+        int live = 0;
+        for (int time = oldest; time < clock; time++)
+        {
+            final int key = keys[time];
+            if (lastAccessed.get(key) == time)
+            {
+                keys[live] = key;
+                ghosts[live] = ghosts[time];
+                lastAccessed.put(key, live);
+                live++;
+            }
+        }
+
+        Arrays.fill(distances, 0);
+        for (int time = 0; time < live; time++)
+        {
+            mark(time, 1);
+        }
+        oldest = 0;
+        clock = live;
+    }
+
+    // Fenwick tree over access times, marking the latest access of each tracked url
+    private void mark(
+        int time,
+        int delta)
+    {
+        for (int i = time + 1; i < distances.length; i += i & -i)
+        {
+            distances[i] += delta;
+        }
+    }
+
+    private int count(
+        int time)
+    {
+        int count = 0;
+        for (int i = time; i > 0; i -= i & -i)
+        {
+            count += distances[i];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HotKeys;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LongObjectBiConsumer;
+
+/**
+ * Tracks the hottest urls by request rate, bytes served from cache, origin fetches and subscribes, each in a
+ * {@link SpaceSaving} summary, and publishes them to {@link HotKeys} once a second for the controller to read.
+ * Counts are halved every minute, so urls that have gone cold give way to those hot now.
+ */
+public final class HotKeyTracker
+{
+    static final long PUBLISH_INTERVAL_MILLIS = 1000L;
+    static final int DECAY_INTERVAL_PUBLISHES = 60;
+
+    private final SpaceSaving[] metrics;
+    private final HotKeys snapshot;
+    private final LongObjectBiConsumer<Runnable> scheduler;
+    private final Runnable publish;
+
+    private int publishes;
+
+    public HotKeyTracker(
+        HotKeys snapshot,
+        LongObjectBiConsumer<Runnable> scheduler)
+    {
+        this.metrics = new SpaceSaving[]
+        {
+            new SpaceSaving(snapshot.capacity()),
+            new SpaceSaving(snapshot.capacity()),
+            new SpaceSaving(snapshot.capacity()),
+            new SpaceSaving(snapshot.capacity())
+        };
+        this.snapshot = snapshot;
+        this.scheduler = scheduler;
+        this.publish = this::publish;
+        scheduler.accept(System.currentTimeMillis() + PUBLISH_INTERVAL_MILLIS, publish);
+    }
+
+    public void requested(
+        int requestURLHash,
+        String requestURL)
+    {
+        metrics[HotKeys.REQUESTS].offer(requestURLHash, requestURL, 1L);
+    }
+
+    public void served(
+        int requestURLHash,
+        String requestURL,
+        int bytes)
+    {
+        metrics[HotKeys.BYTES].offer(requestURLHash, requestURL, bytes);
+    }
+
+    /**
+     * @param requestURL  null for background refreshes, which keep the url of an earlier fetch
+     */
+    public void fetched(
+        int requestURLHash,
+        String requestURL)
+    {
+        metrics[HotKeys.FETCHES].offer(requestURLHash, requestURL, 1L);
+    }
+
+    public void subscribed(
+        int requestURLHash,
+        String requestURL)
+    {
+        metrics[HotKeys.SUBSCRIBERS].offer(requestURLHash, requestURL, 1L);
+    }
+
+    void publish()
+    {
+        snapshot.beginUpdate();
+        for (int metric = 0; metric < metrics.length; metric++)
+        {
+            final SpaceSaving keys = metrics[metric];
+            final int size = keys.size();
+            for (int slot = 0; slot < size; slot++)
+            {
+                final int rank = rank(keys, slot);
+                snapshot.update(metric, rank, keys.hash(slot), keys.url(slot), keys.count(slot));
+            }
+            snapshot.updateSize(metric, size);
+        }
+        snapshot.endUpdate();
+
+        if (++publishes == DECAY_INTERVAL_PUBLISHES)
+        {
+            publishes = 0;
+            for (SpaceSaving keys : metrics)
+            {
+                keys.decay();
+            }
+        }
+        scheduler.accept(System.currentTimeMillis() + PUBLISH_INTERVAL_MILLIS, publish);
+    }
+
+    private static int rank(
+        SpaceSaving keys,
+        int slot)
+    {
+        final long count = keys.count(slot);
+        int rank = 0;
+        for (int i = 0; i < keys.size(); i++)
+        {
+            final long other = keys.count(i);
+            if (other > count || other == count && i < slot)
+            {
+                rank++;
+            }
+        }
+        return rank;
+    }
+}
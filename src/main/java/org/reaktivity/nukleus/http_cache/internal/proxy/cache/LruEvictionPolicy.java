@@ -0,0 +1,146 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.Int2ObjectHashMap;
+
+/**
+ * Evicts the least recently used entry.  Entries are kept in an intrusive list in order of use, least recent
+ * first, so an access moves its entry to the end without allocating.
+ */
+public final class LruEvictionPolicy implements EvictionPolicy
+{
+    private final Int2ObjectHashMap<Entry> entries = new Int2ObjectHashMap<>();
+
+    private Entry head;
+    private Entry tail;
+
+    @Override
+    public void admitted(
+        int requestURLHash,
+        int size,
+        long cost)
+    {
+        final Entry entry = entries.get(requestURLHash);
+        if (entry != null)
+        {
+            unlink(entry);
+            append(entry);
+        }
+        else
+        {
+            final Entry newEntry = new Entry(requestURLHash);
+            entries.put(requestURLHash, newEntry);
+            append(newEntry);
+        }
+    }
+
+    @Override
+    public void accessed(
+        int requestURLHash)
+    {
+        final Entry entry = entries.get(requestURLHash);
+        if (entry != null && entry != tail)
+        {
+            unlink(entry);
+            append(entry);
+        }
+    }
+
+    @Override
+    public void removed(
+        int requestURLHash)
+    {
+        final Entry entry = entries.remove(requestURLHash);
+        if (entry != null)
+        {
+            unlink(entry);
+        }
+    }
+
+    @Override
+    public void evicted(
+        int requestURLHash)
+    {
+        removed(requestURLHash);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public int victim()
+    {
+        return head.requestURLHash;
+    }
+
+    private void append(
+        Entry entry)
+    {
+        if (tail == null)
+        {
+            head = entry;
+        }
+        else
+        {
+            tail.next = entry;
+            entry.prev = tail;
+        }
+        tail = entry;
+    }
+
+    private void unlink(
+        Entry entry)
+    {
+        if (entry.prev == null)
+        {
+            head = entry.next;
+        }
+        else
+        {
+            entry.prev.next = entry.next;
+        }
+
+        if (entry.next == null)
+        {
+            tail = entry.prev;
+        }
+        else
+        {
+            entry.next.prev = entry.prev;
+        }
+
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private static final class Entry
+    {
+        private final int requestURLHash;
+
+        private Entry prev;
+        private Entry next;
+
+        private Entry(
+            int requestURLHash)
+        {
+            this.requestURLHash = requestURLHash;
+        }
+    }
+}
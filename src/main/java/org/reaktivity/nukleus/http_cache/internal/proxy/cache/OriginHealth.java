@@ -0,0 +1,212 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.function.LongSupplier;
+
+import org.agrona.collections.Long2ObjectHashMap;
+
+/**
+ * Health of each origin, by connect route, as seen from responses to cache misses and refreshes.  An origin
+ * tracks its error rate and response latency as exponentially weighted moving averages, and its consecutive
+ * failures.  After enough consecutive failures, or once failures are frequent enough for the error rate to
+ * cross its threshold, its breaker opens for an exponentially growing back-off, after which a single request
+ * is let through to probe the origin while others keep waiting: success closes the breaker, failure reopens
+ * it for longer.  A probe that never reports back lets another through once the back-off elapses again.
+ *
+ * Open breakers are published as the difference between the {@code breaker.opens} and
+ * {@code breaker.closes} counters.
+ */
+public final class OriginHealth
+{
+    static final double WEIGHT = 0.2;
+    static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final int failureThreshold;
+    private final double errorRateThreshold;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final boolean shortCircuit;
+    private final LongSupplier failures;
+    private final LongSupplier opens;
+    private final LongSupplier closes;
+    private final LongSupplier shortCircuits;
+    private final Long2ObjectHashMap<Origin> origins;
+
+    public OriginHealth(
+        int failureThreshold,
+        double errorRateThreshold,
+        long backoffMillis,
+        long maxBackoffMillis,
+        boolean shortCircuit,
+        LongSupplier failures,
+        LongSupplier opens,
+        LongSupplier closes,
+        LongSupplier shortCircuits)
+    {
+        this.failureThreshold = failureThreshold;
+        this.errorRateThreshold = errorRateThreshold;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.shortCircuit = shortCircuit;
+        this.failures = failures;
+        this.opens = opens;
+        this.closes = closes;
+        this.shortCircuits = shortCircuits;
+        this.origins = new Long2ObjectHashMap<>();
+    }
+
+    public void succeeded(
+        long connectRef,
+        long latencyMillis)
+    {
+        final Origin origin = supplyOrigin(connectRef);
+        origin.observe(false, latencyMillis);
+        origin.consecutiveFailures = 0;
+        if (origin.open)
+        {
+            origin.open = false;
+            closes.getAsLong();
+        }
+    }
+
+    public void failed(
+        long connectRef,
+        long latencyMillis)
+    {
+        final Origin origin = supplyOrigin(connectRef);
+        origin.observe(true, latencyMillis);
+        origin.consecutiveFailures++;
+        failures.getAsLong();
+        if (!origin.open &&
+            (origin.consecutiveFailures >= failureThreshold || origin.errorRate >= errorRateThreshold))
+        {
+            origin.open = true;
+            opens.getAsLong();
+        }
+        if (origin.open)
+        {
+            origin.retryAt = System.currentTimeMillis() + backoff(origin);
+        }
+    }
+
+    /**
+     * @return when requests to an origin with an open breaker may be retried, or zero if they need not wait
+     */
+    public long retryAt(
+        long connectRef,
+        long now)
+    {
+        final Origin origin = origins.get(connectRef);
+        return origin != null && origin.open && now < origin.retryAt ? origin.retryAt : 0L;
+    }
+
+    /**
+     * Called as a request is sent to the origin.  Once the back-off of an open breaker has elapsed, the
+     * first request sent is the probe and the back-off restarts for everyone else.
+     */
+    public void claimProbe(
+        long connectRef,
+        long now)
+    {
+        final Origin origin = origins.get(connectRef);
+        if (origin != null && origin.open && now >= origin.retryAt)
+        {
+            origin.retryAt = now + backoff(origin);
+        }
+    }
+
+    /**
+     * @return extra delay for polls to an origin that is currently failing
+     */
+    public long backoff(
+        long connectRef)
+    {
+        final Origin origin = origins.get(connectRef);
+        return origin != null ? backoff(origin) : 0L;
+    }
+
+    /**
+     * @return true if misses to this origin should be answered without contacting it, otherwise the miss is
+     *         about to be sent and may claim the probe
+     */
+    public boolean shortCircuit(
+        long connectRef,
+        long now)
+    {
+        final boolean shortCircuited = shortCircuit && retryAt(connectRef, now) != 0L;
+        if (shortCircuited)
+        {
+            shortCircuits.getAsLong();
+        }
+        else
+        {
+            claimProbe(connectRef, now);
+        }
+        return shortCircuited;
+    }
+
+    /**
+     * @return the moving average of the fraction of requests to the origin that failed
+     */
+    public double errorRate(
+        long connectRef)
+    {
+        final Origin origin = origins.get(connectRef);
+        return origin != null ? origin.errorRate : 0.0;
+    }
+
+    /**
+     * @return the moving average of the origin's time to first byte, in milliseconds
+     */
+    public double latency(
+        long connectRef)
+    {
+        final Origin origin = origins.get(connectRef);
+        return origin != null ? origin.latency : 0.0;
+    }
+
+    private long backoff(
+        Origin origin)
+    {
+        final int failures = origin.consecutiveFailures;
+        return failures == 0 ? 0L :
+            Math.min(backoffMillis << Math.min(failures - 1, MAX_BACKOFF_SHIFT), maxBackoffMillis);
+    }
+
+    private Origin supplyOrigin(
+        long connectRef)
+    {
+        return origins.computeIfAbsent(connectRef, r -> new Origin());
+    }
+
+    private static final class Origin
+    {
+        private double errorRate;
+        private double latency;
+        private int consecutiveFailures;
+        private boolean open;
+        private long retryAt;
+
+        private void observe(
+            boolean failed,
+            long latencyMillis)
+        {
+            errorRate += WEIGHT * ((failed ? 1.0 : 0.0) - errorRate);
+            latency += WEIGHT * (latencyMillis - latency);
+        }
+    }
+}
@@ -15,26 +15,24 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheableRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.OnUpdateRequest;
 
 public class PendingCacheEntries
 {
+    private final Cache cache;
     private final String etag;
-    private final List<OnUpdateRequest> subscribers = new ArrayList<OnUpdateRequest>();
+    private final SubscriberList subscribers;
 
-    public PendingCacheEntries(CacheableRequest request)
+    public PendingCacheEntries(
+        CacheableRequest request,
+        Cache cache)
     {
+        this.cache = cache;
         this.etag = request.etag();
+        this.subscribers = new SubscriberList(cache);
     }
 
-    final Set<OnUpdateRequest> pendingRequests = new HashSet<OnUpdateRequest>();
-
     public String etag()
     {
         return etag;
@@ -42,11 +40,24 @@ public class PendingCacheEntries
 
     public void subscribe(OnUpdateRequest onUpdateRequest)
     {
+        cache.counters.collapsed.getAsLong();
         this.subscribers.add(onUpdateRequest);
     }
 
     public void addSubscribers(CacheEntry cacheEntry)
     {
-        subscribers.forEach(r -> cacheEntry.subscribeToUpdate(r));
+        subscribers.handOff(subscription ->
+        {
+            if (!cacheEntry.adopt(subscription))
+            {
+                // the committed entry is not polling, so no update would ever answer this subscriber
+                subscription.reject();
+            }
+        });
+    }
+
+    public int subscriberCount()
+    {
+        return subscribers.size();
     }
 }
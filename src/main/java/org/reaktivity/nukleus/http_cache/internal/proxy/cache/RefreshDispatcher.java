@@ -0,0 +1,264 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.function.LongSupplier;
+
+import org.agrona.collections.Long2ObjectHashMap;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LongObjectBiConsumer;
+
+/**
+ * Paces cache initiated refresh requests per connect route.  Each route admits at most a fixed number of
+ * refreshes in flight and at a fixed rate, allowing bursts of up to a tenth of a second's worth.  Refreshes
+ * that would exceed either limit wait in a queue ordered by their poll deadline, so the most overdue entry
+ * is refreshed first once the route has capacity again.  A refresh whose response never completes frees
+ * its place after a timeout.  While the origin health breaker for a route is open, its refreshes wait
+ * until the origin may be retried.
+ *
+ * Queue depth is published as the difference between the {@code refresh.enqueues} and
+ * {@code refresh.dequeues} counters, and how far past its deadline each refresh is sent in the
+ * {@code refresh.lag} histogram.
+ */
+public final class RefreshDispatcher
+{
+    private final LongObjectBiConsumer<Runnable> scheduler;
+    private final OriginHealth health;
+    private final int maxInFlight;
+    private final double ratePerMillis;
+    private final double maxTokens;
+    private final long timeoutMillis;
+    private final LongSupplier enqueues;
+    private final LongSupplier dequeues;
+    private final LongSupplier timeouts;
+    private final LatencyHistograms histograms;
+    private final int lagHistogram;
+    private final Long2ObjectHashMap<Origin> origins;
+
+    public RefreshDispatcher(
+        LongObjectBiConsumer<Runnable> scheduler,
+        OriginHealth health,
+        int maxInFlight,
+        int ratePerSecond,
+        long timeoutMillis,
+        LongSupplier enqueues,
+        LongSupplier dequeues,
+        LongSupplier timeouts,
+        LatencyHistograms histograms)
+    {
+        if (ratePerSecond <= 0)
+        {
+            throw new IllegalArgumentException("refresh rate is not positive");
+        }
+
+        this.scheduler = scheduler;
+        this.health = health;
+        this.maxInFlight = maxInFlight;
+        this.ratePerMillis = ratePerSecond / 1000.0;
+        this.maxTokens = Math.max(1.0, ratePerSecond / 10.0);
+        this.timeoutMillis = timeoutMillis;
+        this.enqueues = enqueues;
+        this.dequeues = dequeues;
+        this.timeouts = timeouts;
+        this.histograms = histograms;
+        this.lagHistogram = histograms.supply("refresh.lag");
+        this.origins = new Long2ObjectHashMap<>();
+    }
+
+    /**
+     * What the dispatcher needs of an entry to refresh it.
+     */
+    interface Refreshable
+    {
+        boolean isPurged();
+
+        /**
+         * @param onRefreshed  run once the refresh response completes
+         * @return true if the refresh request was sent
+         */
+        boolean sendRefreshRequest(
+            Runnable onRefreshed);
+    }
+
+    void schedule(
+        Refreshable entry,
+        long connectRef,
+        long deadline)
+    {
+        scheduler.accept(deadline, () -> dispatch(entry, connectRef, deadline));
+    }
+
+    private void dispatch(
+        Refreshable entry,
+        long connectRef,
+        long deadline)
+    {
+        if (!entry.isPurged())
+        {
+            final long now = System.currentTimeMillis();
+            final Origin origin = origins.computeIfAbsent(connectRef, Origin::new);
+            if (origin.queue.isEmpty() && health.retryAt(connectRef, now) == 0L && origin.tryAcquire(now))
+            {
+                origin.send(entry, deadline, now);
+            }
+            else
+            {
+                origin.queue.add(new PendingRefresh(entry, deadline));
+                enqueues.getAsLong();
+                origin.drain();
+            }
+        }
+    }
+
+    private static final class PendingRefresh implements Comparable<PendingRefresh>
+    {
+        private final Refreshable entry;
+        private final long deadline;
+
+        private PendingRefresh(
+            Refreshable entry,
+            long deadline)
+        {
+            this.entry = entry;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(
+            PendingRefresh that)
+        {
+            return Long.compare(this.deadline, that.deadline);
+        }
+    }
+
+    private final class Origin
+    {
+        private final long connectRef;
+        private final Queue<PendingRefresh> queue;
+        private final Runnable wakeup;
+
+        private int inFlight;
+        private double tokens;
+        private long refilledAt;
+        private boolean wakeupScheduled;
+
+        private Origin(
+            long connectRef)
+        {
+            this.connectRef = connectRef;
+            this.queue = new PriorityQueue<>();
+            this.wakeup = this::wakeup;
+            this.tokens = maxTokens;
+            this.refilledAt = System.currentTimeMillis();
+        }
+
+        private boolean tryAcquire(
+            long now)
+        {
+            tokens = Math.min(maxTokens, tokens + (now - refilledAt) * ratePerMillis);
+            refilledAt = now;
+
+            final boolean acquired = inFlight < maxInFlight && tokens >= 1.0;
+            if (acquired)
+            {
+                tokens -= 1.0;
+            }
+            return acquired;
+        }
+
+        private void send(
+            Refreshable entry,
+            long deadline,
+            long now)
+        {
+            final InFlight refresh = new InFlight(this);
+            if (entry.sendRefreshRequest(refresh))
+            {
+                health.claimProbe(connectRef, now);
+                inFlight++;
+                scheduler.accept(now + timeoutMillis, refresh::expire);
+                histograms.record(lagHistogram, Math.max(now - deadline, 0L) * 1000L);
+            }
+        }
+
+        private void drain()
+        {
+            final long now = System.currentTimeMillis();
+            long retryAt = health.retryAt(connectRef, now);
+            while (!queue.isEmpty() && (queue.peek().entry.isPurged() || retryAt == 0L && tryAcquire(now)))
+            {
+                final PendingRefresh pending = queue.poll();
+                dequeues.getAsLong();
+                if (!pending.entry.isPurged())
+                {
+                    send(pending.entry, pending.deadline, now);
+                    retryAt = health.retryAt(connectRef, now);
+                }
+            }
+
+            // held routes drain again once the origin may be retried, in flight limited routes on completion,
+            // rate limited routes once a token is due
+            if (!queue.isEmpty() && !wakeupScheduled && (retryAt != 0L || inFlight < maxInFlight))
+            {
+                wakeupScheduled = true;
+                final long waitMillis = (long) Math.ceil((1.0 - tokens) / ratePerMillis);
+                scheduler.accept(retryAt != 0L ? retryAt : now + Math.max(waitMillis, 1L), wakeup);
+            }
+        }
+
+        private void wakeup()
+        {
+            wakeupScheduled = false;
+            drain();
+        }
+    }
+
+    private final class InFlight implements Runnable
+    {
+        private final Origin origin;
+
+        private boolean completed;
+
+        private InFlight(
+            Origin origin)
+        {
+            this.origin = origin;
+        }
+
+        @Override
+        public void run()
+        {
+            if (!completed)
+            {
+                completed = true;
+                origin.inFlight--;
+                origin.drain();
+            }
+        }
+
+        private void expire()
+        {
+            if (!completed)
+            {
+                timeouts.getAsLong();
+                health.failed(origin.connectRef, timeoutMillis);
+                run();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.IntArrayList;
+
+/**
+ * Index of cached entries by authorization scope, so all entries of a scope can be found without scanning
+ * the cache.  Each scope holds its entry hashes as the keys of a primitive map, so removal is constant time.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class ScopeIndex
+{
+    private final Int2ObjectHashMap<Int2ObjectHashMap<Boolean>> hashesByScope;
+
+    public ScopeIndex()
+    {
+        this.hashesByScope = new Int2ObjectHashMap<>();
+    }
+
+    public void add(
+        int authScope,
+        int requestURLHash)
+    {
+        hashesByScope.computeIfAbsent(authScope, s -> new Int2ObjectHashMap<>()).put(requestURLHash, Boolean.TRUE);
+    }
+
+    public void remove(
+        int authScope,
+        int requestURLHash)
+    {
+        final Int2ObjectHashMap<Boolean> hashes = hashesByScope.get(authScope);
+        if (hashes != null)
+        {
+            hashes.remove(requestURLHash);
+            if (hashes.isEmpty())
+            {
+                hashesByScope.remove(authScope);
+            }
+        }
+    }
+
+    public int size(
+        int authScope)
+    {
+        final Int2ObjectHashMap<Boolean> hashes = hashesByScope.get(authScope);
+        return hashes != null ? hashes.size() : 0;
+    }
+
+    /**
+     * Adds the hashes of entries cached for this authorization scope.
+     */
+    public void collect(
+        int authScope,
+        IntArrayList into)
+    {
+        final Int2ObjectHashMap<Boolean> hashes = hashesByScope.get(authScope);
+        if (hashes != null)
+        {
+            final Int2ObjectHashMap<Boolean>.KeyIterator iterator = hashes.keySet().iterator();
+            while (iterator.hasNext())
+            {
+                into.addInt(iterator.nextInt());
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.Long2LongHashMap;
+
+/**
+ * Space-saving heavy hitters over url hashes, keeping the most weighted urls in a fixed number of slots.
+ * A url already tracked has its weight added.  Any other url takes the slot of the least weighted url, inheriting
+ * its count as the error bound, so every url with more than {@code total / capacity} weight is guaranteed to be
+ * tracked.  Slots are kept in a min-heap on count so updates cost O(log capacity) and allocate nothing.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class SpaceSaving
+{
+    private static final int NO_SLOT = -1;
+
+    private final int[] hashes;
+    private final String[] urls;
+    private final long[] counts;
+    private final long[] errors;
+    private final Long2LongHashMap slots;
+
+    private int size;
+
+    public SpaceSaving(
+        int capacity)
+    {
+        this.hashes = new int[capacity];
+        this.urls = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.slots = new Long2LongHashMap(NO_SLOT);
+    }
+
+    /**
+     * @param url  the url for the hash, or null to keep the url already known for it
+     */
+    public void offer(
+        int hash,
+        String url,
+        long weight)
+    {
+        int slot = (int) slots.get(key(hash));
+        if (slot == NO_SLOT)
+        {
+            if (size < hashes.length)
+            {
+                slot = size++;
+                counts[slot] = 0L;
+                errors[slot] = 0L;
+            }
+            else
+            {
+                slot = 0;
+                slots.remove(key(hashes[slot]));
+                errors[slot] = counts[slot];
+            }
+            hashes[slot] = hash;
+            urls[slot] = url;
+            slots.put(key(hash), slot);
+            siftUp(slot);
+            slot = (int) slots.get(key(hash));
+        }
+        else if (url != null)
+        {
+            urls[slot] = url;
+        }
+        counts[slot] += weight;
+        siftDown(slot);
+    }
+
+    /**
+     * Halves every count and error bound, so recent weight dominates.  Order between slots is preserved,
+     * so the heap needs no repair.
+     */
+    public void decay()
+    {
+        for (int slot = 0; slot < size; slot++)
+        {
+            counts[slot] >>= 1;
+            errors[slot] >>= 1;
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int hash(
+        int slot)
+    {
+        return hashes[slot];
+    }
+
+    public String url(
+        int slot)
+    {
+        return urls[slot];
+    }
+
+    public long count(
+        int slot)
+    {
+        return counts[slot];
+    }
+
+    public long error(
+        int slot)
+    {
+        return errors[slot];
+    }
+
+    private void siftUp(
+        int slot)
+    {
+        int child = slot;
+        while (child > 0 && counts[(child - 1) >> 1] > counts[child])
+        {
+            final int parent = (child - 1) >> 1;
+            swap(parent, child);
+            child = parent;
+        }
+    }
+
+    private void siftDown(
+        int slot)
+    {
+        int parent = slot;
+        int smallest = smallestOf(parent);
+        while (smallest != parent)
+        {
+            swap(parent, smallest);
+            parent = smallest;
+            smallest = smallestOf(parent);
+        }
+    }
+
+    private int smallestOf(
+        int parent)
+    {
+        final int left = 2 * parent + 1;
+        final int right = left + 1;
+        int smallest = parent;
+        if (left < size && counts[left] < counts[smallest])
+        {
+            smallest = left;
+        }
+        if (right < size && counts[right] < counts[smallest])
+        {
+            smallest = right;
+        }
+        return smallest;
+    }
+
+    private void swap(
+        int i,
+        int j)
+    {
+        final int hash = hashes[i];
+        final String url = urls[i];
+        final long count = counts[i];
+        final long error = errors[i];
+        hashes[i] = hashes[j];
+        urls[i] = urls[j];
+        counts[i] = counts[j];
+        errors[i] = errors[j];
+        hashes[j] = hash;
+        urls[j] = url;
+        counts[j] = count;
+        errors[j] = error;
+        slots.put(key(hashes[i]), i);
+        slots.put(key(hashes[j]), j);
+    }
+
+    // widened without sign extension, as the map reserves its missing value as a key
+    private static long key(
+        int hash)
+    {
+        return hash & 0xffff_ffffL;
+    }
+}
@@ -0,0 +1,444 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.AUTHORIZATION;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.CACHE_CONTROL;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Int2ObjectHashMap;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http_cache.internal.proxy.request.OnUpdateRequest;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.ResetFW;
+
+/**
+ * Intrusive list of on-update subscribers waiting on a cache entry (or a pending one).  Each subscription
+ * is also registered with the cache by reply stream id and acts as the reply throttle, so a subscriber
+ * whose client resets or aborts is unlinked in constant time and its request slot released immediately.
+ * <p>
+ * Subscribers are bucketed as they subscribe by everything that decides whether an entry can serve them
+ * (authorization scope, authorization, cache-control and the request headers named by the entry's vary),
+ * so an update is fanned out per bucket without decoding any request again.  Detached buckets stay linked
+ * and their subscriptions registered until each response is written, so a reset in the meantime still
+ * releases the request slot and takes the subscriber out of the fan-out.
+ */
+final class SubscriberList
+{
+    static final String[] NO_VARY = new String[0];
+
+    private final Cache cache;
+    private final Int2ObjectHashMap<Bucket> bucketsBySignature;
+
+    private String[] varyBy;
+    private Bucket first;
+    private Bucket last;
+    private int size;
+
+    SubscriberList(
+        Cache cache)
+    {
+        this.cache = cache;
+        this.bucketsBySignature = new Int2ObjectHashMap<>();
+        this.varyBy = NO_VARY;
+    }
+
+    /**
+     * @param vary  the vary header of the entry subscribed to, or null if it has none
+     */
+    void varyBy(
+        String vary)
+    {
+        this.varyBy = vary != null ? vary.split("\\s*,\\s*") : NO_VARY;
+    }
+
+    String[] varyBy()
+    {
+        return varyBy;
+    }
+
+    void add(
+        OnUpdateRequest subscriber)
+    {
+        final Subscription subscription = new Subscription(subscriber);
+        link(subscription, sign(subscriber));
+        cache.counters.subscribes.getAsLong();
+
+        cache.subscriptions.put(subscriber.acceptReplyStreamId(), subscription);
+        subscriber.setThrottle(subscription);
+    }
+
+    /**
+     * Takes over a subscription handed off by another list, keeping its registration and its wait so far.
+     */
+    void adopt(
+        Subscription subscription)
+    {
+        final Bucket from = subscription.bucket;
+        final Bucket bucket = Arrays.equals(from.varyBy, varyBy) ? bucketFor(from.authScope, from.signature)
+                                                                  : sign(subscription.subscriber);
+        link(subscription, bucket);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Ends every subscription, for the consumer to answer.
+     */
+    void drain(
+        Consumer<OnUpdateRequest> consumer)
+    {
+        while (first != null)
+        {
+            final Subscription subscription = first.head;
+            unlink(subscription);
+            cache.subscriptions.remove(subscription.subscriber.acceptReplyStreamId());
+            subscription.end();
+            consumer.accept(subscription.subscriber);
+        }
+    }
+
+    /**
+     * Unlinks every subscription still registered, for the consumer to end or pass on.
+     */
+    void handOff(
+        Consumer<Subscription> consumer)
+    {
+        while (first != null)
+        {
+            final Subscription subscription = first.head;
+            unlink(subscription);
+            consumer.accept(subscription);
+        }
+    }
+
+    /**
+     * Hands every bucket to the consumer and empties this list.  Subscriptions in a detached bucket remain
+     * registered until taken from it by {@link Bucket#poll()} or released by a reset.
+     */
+    void detach(
+        Consumer<Bucket> consumer)
+    {
+        Bucket bucket = first;
+        first = null;
+        last = null;
+        size = 0;
+        bucketsBySignature.clear();
+        while (bucket != null)
+        {
+            final Bucket next = bucket.next;
+            bucket.detached = true;
+            bucket.prev = null;
+            bucket.next = null;
+            bucket.nextWithHash = null;
+            consumer.accept(bucket);
+            bucket = next;
+        }
+    }
+
+    private Bucket sign(
+        OnUpdateRequest subscriber)
+    {
+        final ListFW<HttpHeaderFW> requestHeaders =
+                subscriber.getRequestHeaders(cache.requestHeadersRO, cache.subscriberBufferPool);
+        final String[] signature = new String[varyBy.length + 2];
+        signature[0] = getHeader(requestHeaders, AUTHORIZATION);
+        signature[1] = getHeader(requestHeaders, CACHE_CONTROL);
+        for (int i = 0; i < varyBy.length; i++)
+        {
+            signature[i + 2] = getHeader(requestHeaders, varyBy[i]);
+        }
+        return bucketFor(subscriber.authScope(), signature);
+    }
+
+    private Bucket bucketFor(
+        short authScope,
+        String[] signature)
+    {
+        final int hash = 31 * authScope + Arrays.hashCode(signature);
+        Bucket bucket = bucketsBySignature.get(hash);
+        while (bucket != null && !bucket.matches(authScope, signature))
+        {
+            bucket = bucket.nextWithHash;
+        }
+
+        if (bucket == null)
+        {
+            bucket = new Bucket(hash, authScope, signature, varyBy);
+            bucket.nextWithHash = bucketsBySignature.put(hash, bucket);
+            if (last == null)
+            {
+                first = bucket;
+            }
+            else
+            {
+                last.next = bucket;
+                bucket.prev = last;
+            }
+            last = bucket;
+        }
+        return bucket;
+    }
+
+    private void link(
+        Subscription subscription,
+        Bucket bucket)
+    {
+        bucket.add(subscription);
+        size++;
+    }
+
+    private void unlink(
+        Subscription subscription)
+    {
+        final Bucket bucket = subscription.bucket;
+        bucket.remove(subscription);
+        if (!bucket.detached)
+        {
+            size--;
+            if (bucket.head == null)
+            {
+                removeBucket(bucket);
+            }
+        }
+    }
+
+    private void removeBucket(
+        Bucket bucket)
+    {
+        Bucket chained = bucketsBySignature.get(bucket.hash);
+        if (chained == bucket)
+        {
+            if (bucket.nextWithHash == null)
+            {
+                bucketsBySignature.remove(bucket.hash);
+            }
+            else
+            {
+                bucketsBySignature.put(bucket.hash, bucket.nextWithHash);
+            }
+        }
+        else
+        {
+            while (chained.nextWithHash != bucket)
+            {
+                chained = chained.nextWithHash;
+            }
+            chained.nextWithHash = bucket.nextWithHash;
+        }
+
+        if (bucket.prev == null)
+        {
+            first = bucket.next;
+        }
+        else
+        {
+            bucket.prev.next = bucket.next;
+        }
+
+        if (bucket.next == null)
+        {
+            last = bucket.prev;
+        }
+        else
+        {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+
+    final class Bucket
+    {
+        private final int hash;
+        private final short authScope;
+        private final String[] signature;
+        private final String[] varyBy;
+
+        private Bucket nextWithHash;
+        private Bucket prev;
+        private Bucket next;
+        private Subscription head;
+        private Subscription tail;
+        private boolean detached;
+
+        private Bucket(
+            int hash,
+            short authScope,
+            String[] signature,
+            String[] varyBy)
+        {
+            this.hash = hash;
+            this.authScope = authScope;
+            this.signature = signature;
+            this.varyBy = varyBy;
+        }
+
+        short authScope()
+        {
+            return authScope;
+        }
+
+        /**
+         * @return the next subscription of a detached bucket, no longer linked, or null if none remain
+         */
+        Subscription poll()
+        {
+            final Subscription subscription = head;
+            if (subscription != null)
+            {
+                remove(subscription);
+            }
+            return subscription;
+        }
+
+        private SubscriberList list()
+        {
+            return SubscriberList.this;
+        }
+
+        private boolean matches(
+            short authScope,
+            String[] signature)
+        {
+            boolean matches = this.authScope == authScope && this.signature.length == signature.length;
+            for (int i = 0; matches && i < signature.length; i++)
+            {
+                matches = Objects.equals(this.signature[i], signature[i]);
+            }
+            return matches;
+        }
+
+        private void add(
+            Subscription subscription)
+        {
+            subscription.bucket = this;
+            if (tail == null)
+            {
+                head = subscription;
+            }
+            else
+            {
+                tail.next = subscription;
+                subscription.prev = tail;
+            }
+            tail = subscription;
+        }
+
+        private void remove(
+            Subscription subscription)
+        {
+            if (subscription.prev == null)
+            {
+                head = subscription.next;
+            }
+            else
+            {
+                subscription.prev.next = subscription.next;
+            }
+
+            if (subscription.next == null)
+            {
+                tail = subscription.prev;
+            }
+            else
+            {
+                subscription.next.prev = subscription.prev;
+            }
+
+            subscription.prev = null;
+            subscription.next = null;
+        }
+    }
+
+    final class Subscription implements MessageConsumer
+    {
+        private final OnUpdateRequest subscriber;
+        private final long subscribedNanos;
+
+        private Bucket bucket;
+        private Subscription prev;
+        private Subscription next;
+
+        private Subscription(
+            OnUpdateRequest subscriber)
+        {
+            this.subscriber = subscriber;
+            this.subscribedNanos = System.nanoTime();
+        }
+
+        OnUpdateRequest subscriber()
+        {
+            return subscriber;
+        }
+
+        @Override
+        public void accept(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+        {
+            if (msgTypeId == ResetFW.TYPE_ID)
+            {
+                cache.unsubscribe(subscriber.acceptReplyStreamId());
+            }
+        }
+
+        /**
+         * Counts the end of this subscription and records how long the subscriber waited, once it is delivered,
+         * rejected or released.
+         */
+        void end()
+        {
+            cache.counters.unsubscribes.getAsLong();
+            cache.recordSince(cache.subscriberWaitHistogram, subscribedNanos);
+        }
+
+        /**
+         * Ends a subscription no longer linked to any list with a 503, since nothing will answer it.
+         */
+        void reject()
+        {
+            cache.subscriptions.remove(subscriber.acceptReplyStreamId());
+            end();
+            cache.writer.do503AndAbort(
+                    subscriber.acceptReply(),
+                    subscriber.acceptReplyStreamId(),
+                    subscriber.acceptCorrelationId());
+            subscriber.purge(cache.subscriberBufferPool);
+        }
+
+        void unsubscribe()
+        {
+            bucket.list().unlink(this);
+            end();
+            subscriber.purge(cache.subscriberBufferPool);
+        }
+    }
+}
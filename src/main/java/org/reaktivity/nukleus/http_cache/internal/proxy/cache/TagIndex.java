@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.IntArrayList;
+import org.agrona.collections.Long2ObjectHashMap;
+
+/**
+ * Inverted index from {@code Surrogate-Key} tags to the url hashes of the entries tagged with them, so one
+ * origin change can invalidate every entry carrying its tag.  Tags are kept only as their 64-bit FNV-1a
+ * hash, computed in place over the header value, and each tag holds its entry hashes as the keys of a
+ * primitive map so purging many entries of one tag stays linear.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class TagIndex
+{
+    private static final long[] NO_TAGS = new long[0];
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Long2ObjectHashMap<Int2ObjectHashMap<Boolean>> entriesByTag;
+    private final Int2ObjectHashMap<long[]> tagsByEntry;
+
+    public TagIndex()
+    {
+        this.entriesByTag = new Long2ObjectHashMap<>();
+        this.tagsByEntry = new Int2ObjectHashMap<>();
+    }
+
+    /**
+     * @param surrogateKeys  space separated tags, or null if the entry has none
+     */
+    public void add(
+        int requestURLHash,
+        String surrogateKeys)
+    {
+        remove(requestURLHash);
+        final long[] tags = parse(surrogateKeys);
+        if (tags.length != 0)
+        {
+            tagsByEntry.put(requestURLHash, tags);
+            for (long tag : tags)
+            {
+                entriesByTag.computeIfAbsent(tag, t -> new Int2ObjectHashMap<>()).put(requestURLHash, Boolean.TRUE);
+            }
+        }
+    }
+
+    public void remove(
+        int requestURLHash)
+    {
+        final long[] tags = tagsByEntry.remove(requestURLHash);
+        if (tags != null)
+        {
+            for (long tag : tags)
+            {
+                final Int2ObjectHashMap<Boolean> entries = entriesByTag.get(tag);
+                entries.remove(requestURLHash);
+                if (entries.isEmpty())
+                {
+                    entriesByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    public int tags()
+    {
+        return entriesByTag.size();
+    }
+
+    /**
+     * Adds the url hashes of entries tagged with this tag.
+     */
+    public void collect(
+        String tag,
+        IntArrayList into)
+    {
+        final Int2ObjectHashMap<Boolean> entries = entriesByTag.get(tagHash(tag, 0, tag.length()));
+        if (entries != null)
+        {
+            final Int2ObjectHashMap<Boolean>.KeyIterator iterator = entries.keySet().iterator();
+            while (iterator.hasNext())
+            {
+                into.addInt(iterator.nextInt());
+            }
+        }
+    }
+
+    static long[] parse(
+        String surrogateKeys)
+    {
+        long[] tags = NO_TAGS;
+        if (surrogateKeys != null)
+        {
+            tags = new long[count(surrogateKeys)];
+            final int length = surrogateKeys.length();
+            int tag = 0;
+            int start = 0;
+            while (start < length)
+            {
+                while (start < length && Character.isWhitespace(surrogateKeys.charAt(start)))
+                {
+                    start++;
+                }
+                int end = start;
+                while (end < length && !Character.isWhitespace(surrogateKeys.charAt(end)))
+                {
+                    end++;
+                }
+                if (end > start)
+                {
+                    tags[tag++] = tagHash(surrogateKeys, start, end);
+                }
+                start = end;
+            }
+        }
+        return tags;
+    }
+
+    private static int count(
+        String surrogateKeys)
+    {
+        int count = 0;
+        boolean inTag = false;
+        for (int i = 0; i < surrogateKeys.length(); i++)
+        {
+            final boolean whitespace = Character.isWhitespace(surrogateKeys.charAt(i));
+            if (!whitespace && !inTag)
+            {
+                count++;
+            }
+            inTag = !whitespace;
+        }
+        return count;
+    }
+
+    // 64-bit FNV-1a over the chars of the tag, without taking a substring
+    static long tagHash(
+        String value,
+        int start,
+        int end)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
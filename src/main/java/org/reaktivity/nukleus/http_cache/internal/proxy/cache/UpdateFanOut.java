@@ -0,0 +1,171 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.reaktivity.nukleus.http_cache.internal.proxy.request.OnUpdateRequest;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EgressBudget;
+import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
+import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
+
+/**
+ * Delivers an updated cache entry to the on-update subscribers of the entry it replaces.  Subscribers were
+ * bucketed as they subscribed by everything that decides whether the entry can serve them, so publishing
+ * takes over the replaced entry's buckets as they are and eligibility is evaluated once per bucket, unless
+ * the updated entry varies by different headers, in which case each subscriber is checked as it is served.
+ * Delivery is spread over duty cycles, a batch at a time, drawing on the shared egress budget.  Eligibility
+ * is checked at delivery time against whichever entry is then cached for the url, since the published one
+ * may have been replaced or purged while delivery was deferred.
+ */
+final class UpdateFanOut
+{
+    private final Cache cache;
+    private final EgressBudget egress;
+    private final int batchSize;
+    private final Deque<SubscriberGroup> pending;
+    private final Runnable deliver;
+
+    private CacheEntry publishing;
+    private boolean revaried;
+    private boolean deferred;
+
+    UpdateFanOut(
+        Cache cache,
+        EgressBudget egress,
+        int batchSize)
+    {
+        this.cache = cache;
+        this.egress = egress;
+        this.batchSize = batchSize;
+        this.pending = new ArrayDeque<>();
+        this.deliver = this::deliver;
+    }
+
+    void publish(
+        CacheEntry entry,
+        CacheEntry oldEntry)
+    {
+        this.publishing = entry;
+        this.revaried = !Arrays.equals(entry.varyBy(), oldEntry.varyBy());
+
+        oldEntry.subscribers(this::group);
+
+        this.publishing = null;
+
+        if (!deferred)
+        {
+            if (egress.available())
+            {
+                deliver();
+            }
+            else
+            {
+                defer();
+            }
+        }
+    }
+
+    private void group(
+        SubscriberList.Bucket bucket)
+    {
+        pending.add(new SubscriberGroup(publishing.requestUrl(), bucket, revaried));
+    }
+
+    private void defer()
+    {
+        this.deferred = true;
+        egress.defer(deliver);
+    }
+
+    private void deliver()
+    {
+        this.deferred = false;
+
+        int delivered = 0;
+        while (delivered < batchSize && !pending.isEmpty())
+        {
+            final SubscriberGroup group = pending.peek();
+            final SubscriberList.Subscription subscription = group.bucket.poll();
+            if (subscription == null)
+            {
+                pending.poll();
+            }
+            else
+            {
+                group.deliver(subscription);
+                delivered++;
+            }
+        }
+
+        if (!pending.isEmpty())
+        {
+            defer();
+        }
+    }
+
+    private final class SubscriberGroup
+    {
+        private final int requestURLHash;
+        private final SubscriberList.Bucket bucket;
+        private final boolean checkEach;
+
+        private CacheEntry checked;
+        private boolean eligible;
+
+        private SubscriberGroup(
+            int requestURLHash,
+            SubscriberList.Bucket bucket,
+            boolean checkEach)
+        {
+            this.requestURLHash = requestURLHash;
+            this.bucket = bucket;
+            this.checkEach = checkEach;
+        }
+
+        private void deliver(
+            SubscriberList.Subscription subscription)
+        {
+            // subscribers reset while deferred have already left the bucket and been released
+            final OnUpdateRequest subscriber = subscription.subscriber();
+            cache.subscriptions.remove(subscriber.acceptReplyStreamId());
+            subscription.end();
+            final CacheEntry entry = cache.cachedEntries.get(requestURLHash);
+            if (entry != checked || checkEach)
+            {
+                final ListFW<HttpHeaderFW> requestHeaders =
+                        subscriber.getRequestHeaders(cache.requestHeadersRO, cache.subscriberBufferPool);
+                this.checked = entry;
+                this.eligible = entry != null && entry.canServeRequest(requestHeaders, bucket.authScope());
+            }
+
+            if (eligible && !entry.isPurged())
+            {
+                entry.serveClient(subscriber);
+            }
+            else
+            {
+                cache.writer.do503AndAbort(
+                        subscriber.acceptReply(),
+                        subscriber.acceptReplyStreamId(),
+                        subscriber.acceptCorrelationId());
+                subscriber.purge(cache.subscriberBufferPool);
+            }
+        }
+    }
+}
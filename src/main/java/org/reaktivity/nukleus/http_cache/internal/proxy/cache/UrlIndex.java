@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.agrona.collections.Int2ObjectHashMap;
+import org.agrona.collections.IntArrayList;
+
+/**
+ * Index of cached entries by request url, so entries can be found by exact url or url prefix across
+ * authorization scopes.  Urls are kept sorted, so all urls sharing a prefix are one contiguous range.
+ * <b>Each instance of this class is assumed to be used by one and only one thread.</b>
+ */
+public final class UrlIndex
+{
+    private final NavigableMap<String, IntArrayList> hashesByUrl;
+    private final Int2ObjectHashMap<String> urlsByHash;
+
+    public UrlIndex()
+    {
+        this.hashesByUrl = new TreeMap<>();
+        this.urlsByHash = new Int2ObjectHashMap<>();
+    }
+
+    public void add(
+        String url,
+        int requestURLHash)
+    {
+        final String previous = urlsByHash.get(requestURLHash);
+        if (previous == null || !previous.equals(url))
+        {
+            remove(requestURLHash);
+            urlsByHash.put(requestURLHash, url);
+            hashesByUrl.computeIfAbsent(url, u -> new IntArrayList()).addInt(requestURLHash);
+        }
+    }
+
+    public void remove(
+        int requestURLHash)
+    {
+        final String url = urlsByHash.remove(requestURLHash);
+        if (url != null)
+        {
+            final IntArrayList hashes = hashesByUrl.get(url);
+            hashes.removeInt(requestURLHash);
+            if (hashes.isEmpty())
+            {
+                hashesByUrl.remove(url);
+            }
+        }
+    }
+
+    public int size()
+    {
+        return urlsByHash.size();
+    }
+
+    /**
+     * Adds the hashes of entries cached for exactly this url.
+     */
+    public void collect(
+        String url,
+        IntArrayList into)
+    {
+        final IntArrayList hashes = hashesByUrl.get(url);
+        if (hashes != null)
+        {
+            addAll(hashes, into);
+        }
+    }
+
+    /**
+     * Adds the hashes of entries cached for any url starting with this prefix.
+     */
+    public void collectPrefix(
+        String prefix,
+        IntArrayList into)
+    {
+        for (Map.Entry<String, IntArrayList> entry : hashesByUrl.tailMap(prefix, true).entrySet())
+        {
+            if (!entry.getKey().startsWith(prefix))
+            {
+                break;
+            }
+            addAll(entry.getValue(), into);
+        }
+    }
+
+    private static void addAll(
+        IntArrayList hashes,
+        IntArrayList into)
+    {
+        for (int i = 0; i < hashes.size(); i++)
+        {
+            into.addInt(hashes.getInt(i));
+        }
+    }
+}
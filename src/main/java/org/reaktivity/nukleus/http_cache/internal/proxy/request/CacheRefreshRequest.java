@@ -15,24 +15,33 @@
  */
 package org.reaktivity.nukleus.http_cache.internal.proxy.request;
 
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
+import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getHeader;
+
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.Cache;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheEntry;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.HttpStatus;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
+import org.reaktivity.nukleus.http_cache.internal.types.stream.EndFW;
 
 public class CacheRefreshRequest extends CacheableRequest
 {
 
     private CacheEntry updatingEntry;
     private Cache cache;
+    private Runnable onRefreshed;
+    private boolean revalidation;
+    private boolean notModified;
 
     public CacheRefreshRequest(
             CacheableRequest req,
             int requestSlot,
             String etag,
             CacheEntry cacheEntry,
-            Cache cache)
+            Cache cache,
+            Runnable onRefreshed)
     {
         // TODO eliminate reference /GC duplication (Flyweight pattern?)
         super(req.acceptName,
@@ -51,6 +60,8 @@ public class CacheRefreshRequest extends CacheableRequest
               etag);
         this.updatingEntry = cacheEntry;
         this.cache = cache;
+        this.onRefreshed = onRefreshed;
+        this.revalidation = cacheEntry.isRevalidating();
     }
 
     public void cache(
@@ -58,17 +69,37 @@ public class CacheRefreshRequest extends CacheableRequest
         Cache cache,
         BufferPool bufferPool)
     {
-        if (responseHeaders.anyMatch(h ->
-                ":status".equals(h.name().asString()) &&
-                "200".equals(h.value().asString())))
+        final String status = getHeader(responseHeaders, STATUS);
+        if (HttpStatus.OK_200.equals(status))
         {
             super.cache(responseHeaders, cache, bufferPool);
         }
+        else if (HttpStatus.NOT_MODIFIED_304.equals(status))
+        {
+            // entry is updated in place, nothing from this response is stored
+            this.notModified = true;
+            updatingEntry.notModified(this, responseHeaders);
+            this.purge(bufferPool);
+        }
         else
         {
             this.purge(bufferPool);
         }
-}
+    }
+
+    @Override
+    public void cache(
+        EndFW end,
+        Cache cache)
+    {
+        // only completed refreshes count towards round trip time, not failed or oversized responses
+        if (notModified || state == CacheState.COMMITING)
+        {
+            cache.refreshed(this);
+        }
+        super.cache(end, cache);
+        onRefreshed.run();
+    }
 
     @Override
     public Type getType()
@@ -79,11 +110,23 @@ public class CacheRefreshRequest extends CacheableRequest
     @Override
     public void purge(BufferPool cacheBufferPool)
     {
-        if (this.state != CacheState.COMMITTED)
+        if (this.state != CacheState.COMMITTED && !notModified)
         {
-            this.cache.purge(updatingEntry);
+            if (revalidation && originFailed)
+            {
+                updatingEntry.revalidationFailed();
+            }
+            else if (revalidation)
+            {
+                updatingEntry.revalidationNotStored();
+            }
+            else
+            {
+                this.cache.purge(updatingEntry);
+            }
         }
         super.purge(cacheBufferPool);
+        onRefreshed.run();
     }
 
 }
@@ -24,6 +24,7 @@ import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.Cache;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheEntry;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Slab;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
@@ -37,11 +38,17 @@ public abstract class CacheableRequest extends AnswerableByCacheRequest
     int responseSlot = Slab.NO_SLOT;
     int responseHeadersSize;
     int responseSize;
-    final MessageConsumer connect;
-    final long connectRef;
+    MessageConsumer connect;
+    long connectRef;
+    long connectedAt;
+    long connectedNanos;
+    long originLatency;
+    boolean originFailed;
     final LongSupplier supplyCorrelationId;
     final LongSupplier supplyStreamId;
     protected CacheState state;
+    private CacheEntry fallback;
+    private CacheEntry victim;
 
     public enum CacheState
     {
@@ -80,6 +87,8 @@ public abstract class CacheableRequest extends AnswerableByCacheRequest
 
         this.connect = connect;
         this.connectRef = connectRef;
+        this.connectedAt = System.currentTimeMillis();
+        this.connectedNanos = System.nanoTime();
     }
 
     // TODO remove need for duplication
@@ -115,10 +124,20 @@ public abstract class CacheableRequest extends AnswerableByCacheRequest
         this.responseSize = 0;
     }
 
-    public void cache(
+    public void notModified(
+            ListFW<HttpHeaderFW> responseHeaders)
+    {
+        etag(getHeaderOrDefault(responseHeaders, ETAG, etag()));
+    }
+
+    /**
+     * @return false if the response has just outgrown its slot and been purged
+     */
+    public boolean cache(
             DataFW data,
             BufferPool cacheBufferPool)
     {
+        boolean fits = true;
         if (state == CacheState.COMMITING)
         {
             OctetsFW payload = data.payload();
@@ -126,6 +145,7 @@ public abstract class CacheableRequest extends AnswerableByCacheRequest
             if (responseSize + sizeof > cacheBufferPool.slotCapacity())
             {
                 this.purge(cacheBufferPool);
+                fits = false;
             }
             else
             {
@@ -134,6 +154,7 @@ public abstract class CacheableRequest extends AnswerableByCacheRequest
                 responseSize += sizeof;
             }
         }
+        return fits;
     }
 
     public void cache(EndFW end, Cache cache)
@@ -160,6 +181,70 @@ public abstract class CacheableRequest extends AnswerableByCacheRequest
         }
     }
 
+    public void connect(
+        MessageConsumer connect,
+        long connectRef)
+    {
+        this.connect = connect;
+        this.connectRef = connectRef;
+        this.connectedAt = System.currentTimeMillis();
+        this.connectedNanos = System.nanoTime();
+    }
+
+    public long connectedAt()
+    {
+        return connectedAt;
+    }
+
+    public long connectedNanos()
+    {
+        return connectedNanos;
+    }
+
+    public void originLatency(
+        long originLatency)
+    {
+        this.originLatency = originLatency;
+    }
+
+    public long originLatency()
+    {
+        return originLatency;
+    }
+
+    public void originFailed(
+        boolean originFailed)
+    {
+        this.originFailed = originFailed;
+    }
+
+    public boolean originFailed()
+    {
+        return originFailed;
+    }
+
+    public void fallback(
+        CacheEntry fallback)
+    {
+        this.fallback = fallback;
+    }
+
+    public CacheEntry fallback()
+    {
+        return fallback;
+    }
+
+    public void victim(
+        CacheEntry victim)
+    {
+        this.victim = victim;
+    }
+
+    public CacheEntry victim()
+    {
+        return victim;
+    }
+
     public long connectRef()
     {
         return connectRef;
@@ -28,8 +28,6 @@ public class InitialRequest extends CacheableRequest
             MessageConsumer acceptReply,
             long acceptReplyStreamId,
             long acceptCorrelationId,
-            MessageConsumer connect,
-            long connectRef,
             LongSupplier supplyCorrelationId,
             LongSupplier supplyStreamId,
             int requestURLHash,
@@ -43,8 +41,8 @@ public class InitialRequest extends CacheableRequest
               acceptReply,
               acceptReplyStreamId,
               acceptCorrelationId,
-              connect,
-              connectRef,
+              null,
+              0L,
               supplyCorrelationId,
               supplyStreamId,
               requestURLHash,
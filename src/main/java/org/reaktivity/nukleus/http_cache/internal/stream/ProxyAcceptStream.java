@@ -16,13 +16,14 @@
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
 import static org.reaktivity.nukleus.buffer.BufferPool.NO_SLOT;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.canBeRevalidatedByCache;
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.canBeServedByCache;
-import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeaders.STATUS;
 import static org.reaktivity.nukleus.http_cache.internal.stream.util.HttpHeadersUtil.getRequestURL;
 
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheCounters.RouteCounters;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheDirectives;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.PreferHeader;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheableRequest;
@@ -30,10 +31,11 @@ import org.reaktivity.nukleus.http_cache.internal.proxy.request.InitialRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.OnUpdateRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.ProxyRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RouteTable.Route;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
 import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
-import org.reaktivity.nukleus.http_cache.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.AbortFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.DataFW;
@@ -46,7 +48,8 @@ final class ProxyAcceptStream
 {
     private final ProxyStreamFactory streamFactory;
 
-    private String acceptName;
+    private final Route route;
+    private final String acceptName;
     private MessageConsumer acceptReply;
     private long acceptReplyStreamId;
     private final long acceptStreamId;
@@ -69,11 +72,14 @@ final class ProxyAcceptStream
     ProxyAcceptStream(
             ProxyStreamFactory streamFactory,
             MessageConsumer acceptThrottle,
-            long acceptStreamId)
+            long acceptStreamId,
+            Route route)
     {
         this.streamFactory = streamFactory;
         this.acceptThrottle = acceptThrottle;
         this.acceptStreamId = acceptStreamId;
+        this.route = route;
+        this.acceptName = route.sourceName();
         this.streamState = this::beforeBegin;
     }
 
@@ -95,7 +101,6 @@ final class ProxyAcceptStream
         if (msgTypeId == BeginFW.TYPE_ID)
         {
             final BeginFW begin = streamFactory.beginRO.wrap(buffer, index, index + length);
-            this.acceptName = begin.source().asString();
             handleBegin(begin);
         }
         else
@@ -106,56 +111,55 @@ final class ProxyAcceptStream
 
     private void handleBegin(BeginFW begin)
     {
-        long acceptRef = streamFactory.beginRO.sourceRef();
-        final long authorization = begin.authorization();
-        final short authorizationScope = authorizationScope(authorization);
-        final RouteFW connectRoute = streamFactory.resolveTarget(acceptRef, authorization, acceptName);
+        final short authorizationScope = authorizationScope(begin.authorization());
 
-        if (connectRoute == null)
-        {
-            // just reset
-            streamFactory.writer.doReset(acceptThrottle, acceptStreamId);
-        }
-        else
-        {
-            // TODO consider late initialization of this?
-            this.connectName = connectRoute.target().asString();
-            this.connect = streamFactory.router.supplyTarget(connectName);
-            this.connectRef = connectRoute.targetRef();
-            this.connectCorrelationId = streamFactory.supplyCorrelationId.getAsLong();
-            this.connectStreamId = streamFactory.supplyStreamId.getAsLong();
+        this.acceptReply = route.reply();
+        this.acceptReplyStreamId = streamFactory.supplyStreamId.getAsLong();
+        this.acceptCorrelationId = begin.correlationId();
 
-            this.acceptReply = streamFactory.router.supplyTarget(acceptName);
-            this.acceptReplyStreamId = streamFactory.supplyStreamId.getAsLong();
-            this.acceptCorrelationId = begin.correlationId();
+        final OctetsFW extension = streamFactory.beginRO.extension();
+        final HttpBeginExFW httpBeginFW = extension.get(streamFactory.httpBeginExRO::wrap);
+        final ListFW<HttpHeaderFW> requestHeaders = httpBeginFW.headers();
 
-            final OctetsFW extension = streamFactory.beginRO.extension();
-            final HttpBeginExFW httpBeginFW = extension.get(streamFactory.httpBeginExRO::wrap);
-            final ListFW<HttpHeaderFW> requestHeaders = httpBeginFW.headers();
+        // Should already be canonicalized in http / http2 nuklei
+        final String requestURL = getRequestURL(requestHeaders);
 
-            // Should already be canonicalized in http / http2 nuklei
-            final String requestURL = getRequestURL(requestHeaders);
+        this.requestURLHash = 31 * authorizationScope + requestURL.hashCode();
+        streamFactory.hotKeys.requested(requestURLHash, requestURL);
 
-            this.requestURLHash = 31 * authorizationScope + requestURL.hashCode();
-
-            if (PreferHeader.preferResponseWhenModified(requestHeaders))
-            {
-                handleRequestForWhenUpdated(
-                        authorizationScope,
-                        requestHeaders);
-            }
-            else if (canBeServedByCache(requestHeaders))
-            {
-                storeRequest(requestHeaders);
-                handleCacheableRequest(requestHeaders, requestURL, authorizationScope);
-            }
-            else
-            {
-                proxyRequest(requestHeaders);
-            }
+        if (PreferHeader.preferResponseWhenModified(requestHeaders))
+        {
+            streamFactory.hotKeys.subscribed(requestURLHash, requestURL);
+            handleRequestForWhenUpdated(
+                    authorizationScope,
+                    requestHeaders);
+        }
+        else if (canBeServedByCache(requestHeaders))
+        {
+            storeRequest(requestHeaders);
+            handleCacheableRequest(requestHeaders, requestURL, authorizationScope);
+        }
+        else if (canBeRevalidatedByCache(requestHeaders))
+        {
+            handleRevalidationRequest(requestHeaders, authorizationScope);
+        }
+        else
+        {
+            streamFactory.events.record(EventLog.REQUEST_UNCACHEABLE, requestURLHash, authorizationScope, 0, 0L);
+            proxyRequest(requestHeaders);
         }
     }
 
+    private void resolveConnect()
+    {
+        // connect stream and correlation are only needed when the origin is contacted
+        this.connectName = route.targetName();
+        this.connect = route.target();
+        this.connectRef = route.targetRef();
+        this.connectCorrelationId = streamFactory.supplyCorrelationId.getAsLong();
+        this.connectStreamId = streamFactory.supplyStreamId.getAsLong();
+    }
+
     private short authorizationScope(long authorization)
     {
         return (short) (authorization >>> 48);
@@ -187,7 +191,23 @@ final class ProxyAcceptStream
                 onUpdateRequest,
                 requestHeaders,
                 authScope);
-        this.streamState = this::handleAllFramesByIgnoring;
+        this.streamState = this::handleFramesWhenSubscribed;
+    }
+
+    private void handleFramesWhenSubscribed(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+    {
+        switch (msgTypeId)
+        {
+            case AbortFW.TYPE_ID:
+                streamFactory.cache.unsubscribe(acceptReplyStreamId);
+                break;
+            default:
+                break;
+        }
     }
 
     private void handleCacheableRequest(
@@ -201,8 +221,6 @@ final class ProxyAcceptStream
                 acceptReply,
                 acceptReplyStreamId,
                 acceptCorrelationId,
-                connect,
-                connectRef,
                 streamFactory.supplyCorrelationId,
                 streamFactory.supplyStreamId,
                 requestURLHash,
@@ -212,29 +230,92 @@ final class ProxyAcceptStream
                 authScope,
                 streamFactory.supplyEtag.get());
 
+        final RouteCounters routeCounters = streamFactory.counters.route(route.targetRef());
+        streamFactory.counters.requests.getAsLong();
+        routeCounters.requests.getAsLong();
+
         if (!streamFactory.cache.handleInitialRequest(requestURLHash, requestHeaders, authScope, cacheableRequest))
         {
+            streamFactory.counters.misses.getAsLong();
+            routeCounters.misses.getAsLong();
+
             if(requestHeaders.anyMatch(CacheDirectives.IS_ONLY_IF_CACHED))
             {
                 // TODO move this logic and edge case inside of cache
+                streamFactory.events.record(EventLog.ONLY_IF_CACHED, requestURLHash, authScope, 0, 0L);
                 send504();
             }
             else
             {
-                sendBeginToConnect(requestHeaders);
-                streamFactory.writer.doHttpEnd(connect, connectStreamId);
+                resolveConnect();
+                cacheableRequest.connect(connect, connectRef);
+                if (streamFactory.cache.shortCircuit(cacheableRequest))
+                {
+                    // origin breaker is open, answer from cache if allowed rather than adding to its load
+                    streamFactory.events.record(EventLog.SHORT_CIRCUIT, requestURLHash, authScope, 0, 0L);
+                    if (!streamFactory.cache.serveStaleIfError(cacheableRequest))
+                    {
+                        send503();
+                    }
+                }
+                else
+                {
+                    streamFactory.hotKeys.fetched(requestURLHash, requestURL);
+                    sendBeginToConnect(requestHeaders);
+                    streamFactory.writer.doHttpEnd(connect, connectStreamId);
+                }
             }
         }
         else
         {
+            streamFactory.counters.hits.getAsLong();
+            routeCounters.hits.getAsLong();
+            streamFactory.hotKeys.served(requestURLHash, requestURL, streamFactory.cache.cachedResponseSize(requestURLHash));
             this.request.purge(streamFactory.requestBufferPool);
         }
         this.streamState = this::handleAllFramesByIgnoring;
     }
 
+    private void handleRevalidationRequest(
+        final ListFW<HttpHeaderFW> requestHeaders,
+        short authScope)
+    {
+        storeRequest(requestHeaders);
+        this.request = new InitialRequest(
+                acceptName,
+                acceptReply,
+                acceptReplyStreamId,
+                acceptCorrelationId,
+                streamFactory.supplyCorrelationId,
+                streamFactory.supplyStreamId,
+                requestURLHash,
+                requestSlot,
+                requestSize,
+                streamFactory.router,
+                authScope,
+                streamFactory.supplyEtag.get());
+
+        streamFactory.counters.requests.getAsLong();
+        streamFactory.counters.route(route.targetRef()).requests.getAsLong();
+        streamFactory.events.record(EventLog.REVALIDATION, requestURLHash, authScope, 0, 0L);
+
+        if (streamFactory.cache.handleRevalidationRequest(requestURLHash, requestHeaders, authScope,
+                (InitialRequest) request))
+        {
+            this.streamState = this::handleAllFramesByIgnoring;
+        }
+        else
+        {
+            // nothing cached to revalidate, so the origin answers in full
+            this.request.purge(streamFactory.requestBufferPool);
+            proxyRequest(requestHeaders);
+        }
+    }
+
     private void proxyRequest(
             final ListFW<HttpHeaderFW> requestHeaders)
     {
+        streamFactory.counters.proxied.getAsLong();
         this.request = new ProxyRequest(
                 acceptName,
                 acceptReply,
@@ -242,8 +323,8 @@ final class ProxyAcceptStream
                 acceptCorrelationId,
                 streamFactory.router);
 
+        resolveConnect();
         sendBeginToConnect(requestHeaders);
-
         this.streamState = this::handleFramesWhenProxying;
     }
 
@@ -251,11 +332,7 @@ final class ProxyAcceptStream
     {
         streamFactory.correlations.put(connectCorrelationId, request);
 
-        streamFactory.writer.doHttpBegin(connect, connectStreamId, connectRef, connectCorrelationId,
-                builder -> requestHeaders.forEach(
-                        h ->  builder.item(item -> item.name(h.name()).value(h.value()))
-            )
-        );
+        streamFactory.writer.doHttpBegin(connect, connectStreamId, connectRef, connectCorrelationId, requestHeaders);
 
         streamFactory.router.setThrottle(connectName, connectStreamId, this::handleConnectThrottle);
     }
@@ -268,13 +345,9 @@ final class ProxyAcceptStream
             send503AndReset();
             throw new RuntimeException("Cache out of space, please reconfigure");  // TODO reconsider hard fail??
         }
-        this.requestSize = 0;
+        this.requestSize = headers.sizeof();
         MutableDirectBuffer requestCacheBuffer = streamFactory.streamBufferPool.buffer(requestSlot);
-        headers.forEach(h ->
-        {
-            requestCacheBuffer.putBytes(this.requestSize, h.buffer(), h.offset(), h.sizeof());
-            this.requestSize += h.sizeof();
-        });
+        requestCacheBuffer.putBytes(0, headers.buffer(), headers.offset(), requestSize);
         return this.requestSize;
     }
 
@@ -285,13 +358,15 @@ final class ProxyAcceptStream
         request.purge(streamFactory.requestBufferPool);
     }
 
+    private void send503()
+    {
+        streamFactory.writer.do503AndAbort(acceptReply, acceptReplyStreamId, acceptCorrelationId);
+        request.purge(streamFactory.requestBufferPool);
+    }
+
     private void send504()
     {
-        streamFactory.writer.doHttpBegin(acceptReply, acceptReplyStreamId, 0L, acceptCorrelationId, e ->
-                e.item(h -> h.representation((byte) 0)
-                        .name(STATUS)
-                        .value("504")));
-        streamFactory.writer.doAbort(acceptReply, acceptReplyStreamId);
+        streamFactory.writer.do504AndAbort(acceptReply, acceptReplyStreamId, acceptCorrelationId);
         request.purge(streamFactory.requestBufferPool);
     }
 
@@ -333,6 +408,23 @@ final class ProxyAcceptStream
         }
     }
 
+    private boolean serveStaleIfError()
+    {
+        // only while the origin has not started responding, otherwise the response is already committed
+        final boolean awaitingResponse = request.getType() == Request.Type.INITIAL_REQUEST &&
+                streamFactory.correlations.get(connectCorrelationId) == request;
+        if (awaitingResponse)
+        {
+            streamFactory.cache.originFailed((CacheableRequest) request);
+        }
+        final boolean served = awaitingResponse && streamFactory.cache.serveStaleIfError((CacheableRequest) request);
+        if (served)
+        {
+            streamFactory.correlations.remove(connectCorrelationId);
+        }
+        return served;
+    }
+
     private void handleConnectThrottle(
             int msgTypeId,
             DirectBuffer buffer,
@@ -348,7 +440,10 @@ final class ProxyAcceptStream
                 streamFactory.writer.doWindow(acceptThrottle, acceptStreamId, credit, padding);
                 break;
             case ResetFW.TYPE_ID:
-                streamFactory.writer.doReset(acceptThrottle, acceptStreamId);
+                if (!serveStaleIfError())
+                {
+                    streamFactory.writer.doReset(acceptThrottle, acceptStreamId);
+                }
                 break;
             default:
                 // TODO, ABORT and RESET
@@ -16,6 +16,7 @@
 package org.reaktivity.nukleus.http_cache.internal.stream;
 
 import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.isCacheableResponse;
+import static org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheUtils.isServerError;
 
 import org.agrona.DirectBuffer;
 import org.reaktivity.nukleus.function.MessageConsumer;
@@ -23,6 +24,7 @@ import org.reaktivity.nukleus.http_cache.internal.proxy.cache.SurrogateControl;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheRefreshRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.CacheableRequest;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
 import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
@@ -103,10 +105,14 @@ final class ProxyConnectReplyStream
                     doProxyBegin(responseHeaders);
                     break;
                 case INITIAL_REQUEST:
+                    streamFactory.cache.originResponded((CacheableRequest) streamCorrelation, responseHeaders);
+                    handleCacheableRequest(responseHeaders);
+                    break;
                 case ON_UPDATE:
                     handleCacheableRequest(responseHeaders);
                     break;
                 case CACHE_REFRESH:
+                    streamFactory.cache.originResponded((CacheableRequest) streamCorrelation, responseHeaders);
                     handleCacheRefresh(responseHeaders);
                     break;
                 default:
@@ -149,6 +155,9 @@ final class ProxyConnectReplyStream
                 request.cache(end, streamFactory.cache);
                 break;
             case AbortFW.TYPE_ID:
+                streamFactory.cache.originFailed(request);
+                request.purge(streamFactory.responseBufferPool);
+                break;
             default:
                 request.purge(streamFactory.responseBufferPool);
                 break;
@@ -162,7 +171,13 @@ final class ProxyConnectReplyStream
         int freshnessExtension = SurrogateControl.getSurrogateFreshnessExtension(responseHeaders);
         final boolean isCacheableResponse = isCacheableResponse(responseHeaders);
 
-        if (freshnessExtension > 0 && isCacheableResponse)
+        if (isServerError(responseHeaders) &&
+            streamFactory.cache.serveStaleIfError((CacheableRequest) streamCorrelation))
+        {
+            streamFactory.writer.doReset(connectReplyThrottle, connectReplyStreamId);
+            this.streamState = this::handleAllFramesByIgnoring;
+        }
+        else if (freshnessExtension > 0 && isCacheableResponse)
         {
             handleEdgeArchSync(responseHeaders, freshnessExtension);
         }
@@ -172,7 +187,11 @@ final class ProxyConnectReplyStream
         }
         else
         {
-            ((CacheableRequest) streamCorrelation).purge(streamFactory.responseBufferPool);
+            final CacheableRequest request = (CacheableRequest) streamCorrelation;
+            streamFactory.counters.uncacheable.getAsLong();
+            streamFactory.events.record(EventLog.RESPONSE_UNCACHEABLE, request.requestURLHash(), request.authScope(), 0,
+                    request.originLatency() * 1000L);
+            request.purge(streamFactory.responseBufferPool);
             doProxyBegin(responseHeaders);
         }
     }
@@ -209,9 +228,17 @@ final class ProxyConnectReplyStream
     private void handleCacheableResponse(ListFW<HttpHeaderFW> responseHeaders)
     {
         CacheableRequest request = (CacheableRequest) streamCorrelation;
-        request.cache(responseHeaders, streamFactory.cache, streamFactory.responseBufferPool);
-        doProxyBegin(responseHeaders);
-        this.streamState = this::handleCacheableRequestResponse;
+        if (streamFactory.cache.admit(request))
+        {
+            request.cache(responseHeaders, streamFactory.cache, streamFactory.responseBufferPool);
+            doProxyBegin(responseHeaders);
+            this.streamState = this::handleCacheableRequestResponse;
+        }
+        else
+        {
+            request.purge(streamFactory.responseBufferPool);
+            doProxyBegin(responseHeaders);
+        }
     }
 
     private void handleCacheableRequestResponse(
@@ -226,7 +253,11 @@ final class ProxyConnectReplyStream
         {
             case DataFW.TYPE_ID:
                 final DataFW data = streamFactory.dataRO.wrap(buffer, index, index + length);
-                request.cache(data, streamFactory.cacheBufferPool);
+                if (!request.cache(data, streamFactory.cacheBufferPool))
+                {
+                    streamFactory.events.record(EventLog.RESPONSE_TOO_LARGE, request.requestURLHash(),
+                            request.authScope(), request.responseSize(), request.originLatency() * 1000L);
+                }
                 break;
             case EndFW.TYPE_ID:
                 final EndFW end = streamFactory.endRO.wrap(buffer, index, index + length);
@@ -240,6 +271,15 @@ final class ProxyConnectReplyStream
         this.handleFramesWhenProxying(msgTypeId, buffer, index, length);
     }
 
+    private void handleAllFramesByIgnoring(
+            int msgTypeId,
+            DirectBuffer buffer,
+            int index,
+            int length)
+    {
+        // origin failure already answered from cache
+    }
+
     ///////////// PROXY
     private void doProxyBegin(ListFW<HttpHeaderFW> responseHeaders)
     {
@@ -254,9 +294,7 @@ final class ProxyConnectReplyStream
                 acceptReplyStreamId,
                 acceptReplyRef,
                 correlationId,
-                builder -> responseHeaders.forEach(
-                        h -> builder.item(item -> item.name(h.name()).value(h.value()))
-            ));
+                responseHeaders);
 
         this.streamState = this::handleFramesWhenProxying;
     }
@@ -25,16 +25,19 @@ import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
-import org.reaktivity.nukleus.function.MessagePredicate;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.Cache;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheControl;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheCounters;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.HotKeyTracker;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.LongObjectBiConsumer;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RouteTable;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RouteTable.Route;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Writer;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
 import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
-import org.reaktivity.nukleus.http_cache.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.AbortFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.DataFW;
@@ -60,13 +63,13 @@ public class ProxyStreamFactory implements StreamFactory
     final DataFW dataRO = new DataFW();
     final OctetsFW octetsRO = new OctetsFW();
     final EndFW endRO = new EndFW();
-    private final RouteFW routeRO = new RouteFW();
 
     final WindowFW windowRO = new WindowFW();
     final ResetFW resetRO = new ResetFW();
     final AbortFW abortRO = new AbortFW();
 
     final RouteManager router;
+    final RouteTable routes;
 
     final LongSupplier supplyStreamId;
     final BufferPool streamBufferPool;
@@ -82,9 +85,13 @@ public class ProxyStreamFactory implements StreamFactory
     final CacheControl cacheControlParser = new CacheControl();
 
     final Cache cache;
+    final CacheCounters counters;
+    final EventLog events;
+    final HotKeyTracker hotKeys;
 
     public ProxyStreamFactory(
         RouteManager router,
+        LongSupplier supplyRouteGeneration,
         MutableDirectBuffer writeBuffer,
         BufferPool bufferPool,
         LongSupplier supplyStreamId,
@@ -92,10 +99,14 @@ public class ProxyStreamFactory implements StreamFactory
         Long2ObjectHashMap<Request> correlations,
         LongObjectBiConsumer<Runnable> scheduler,
         Cache cache,
-        Supplier<String> supplyEtag)
+        Supplier<String> supplyEtag,
+        CacheCounters counters,
+        EventLog events,
+        HotKeyTracker hotKeys)
     {
         this.supplyEtag = supplyEtag;
         this.router = requireNonNull(router);
+        this.routes = new RouteTable(router, supplyRouteGeneration);
         this.supplyStreamId = requireNonNull(supplyStreamId);
         this.streamBufferPool = requireNonNull(bufferPool);
         this.requestBufferPool = bufferPool.duplicate();
@@ -105,6 +116,9 @@ public class ProxyStreamFactory implements StreamFactory
         this.supplyCorrelationId = requireNonNull(supplyCorrelationId);
         this.scheduler = requireNonNull(scheduler);
         this.cache = cache;
+        this.counters = counters;
+        this.events = events;
+        this.hotKeys = hotKeys;
 
         this.writer = new Writer(writeBuffer, bufferPool.duplicate());
     }
@@ -138,17 +152,7 @@ public class ProxyStreamFactory implements StreamFactory
             final BeginFW begin,
             final MessageConsumer networkThrottle)
     {
-        final long networkRef = begin.sourceRef();
-        final String acceptName = begin.source().asString();
-
-        final MessagePredicate filter = (t, b, o, l) ->
-        {
-            final RouteFW route = routeRO.wrap(b, o, l);
-            return networkRef == route.sourceRef() &&
-                    acceptName.equals(route.source().asString());
-        };
-
-        final RouteFW route = router.resolve(begin.authorization(), filter, this::wrapRoute);
+        final Route route = routes.resolve(begin.authorization(), begin.source(), begin.sourceRef());
 
         MessageConsumer newStream = null;
 
@@ -156,7 +160,7 @@ public class ProxyStreamFactory implements StreamFactory
         {
             final long networkId = begin.streamId();
 
-            newStream = new ProxyAcceptStream(this, networkThrottle, networkId)::handleStream;
+            newStream = new ProxyAcceptStream(this, networkThrottle, networkId, route)::handleStream;
         }
 
         return newStream;
@@ -171,28 +175,4 @@ public class ProxyStreamFactory implements StreamFactory
         return new ProxyConnectReplyStream(this, throttle, throttleId)::handleStream;
     }
 
-
-    RouteFW resolveTarget(
-            long sourceRef,
-            long authorization,
-            String sourceName)
-    {
-        MessagePredicate filter = (t, b, o, l) ->
-        {
-            RouteFW route = routeRO.wrap(b, o, l);
-            return sourceRef == route.sourceRef() && sourceName.equals(route.source().asString());
-        };
-
-        return router.resolve(authorization, filter, this::wrapRoute);
-    }
-
-    private RouteFW wrapRoute(
-            int msgTypeId,
-            DirectBuffer buffer,
-            int index,
-            int length)
-    {
-        return routeRO.wrap(buffer, index, index + length);
-    }
-
 }
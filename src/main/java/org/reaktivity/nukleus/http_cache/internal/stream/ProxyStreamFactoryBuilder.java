@@ -20,14 +20,32 @@ import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.http_cache.internal.HttpCacheConfiguration;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.AdmissionFilter;
 import org.reaktivity.nukleus.http_cache.internal.proxy.cache.Cache;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.CacheCounters;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.ClockEvictionPolicy;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.EvictionPolicy;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.GdsfEvictionPolicy;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.GhostCache;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.HotKeyTracker;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.LruEvictionPolicy;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.OriginHealth;
+import org.reaktivity.nukleus.http_cache.internal.proxy.cache.RefreshDispatcher;
 import org.reaktivity.nukleus.http_cache.internal.proxy.request.Request;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EgressBudget;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.EventLog;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.ExpirySweeper;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.HotKeys;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.LongObjectBiConsumer;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.PurgeCommands;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Slab;
+import org.reaktivity.nukleus.http_cache.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.route.RouteManager;
 import org.reaktivity.nukleus.stream.StreamFactory;
 import org.reaktivity.nukleus.stream.StreamFactoryBuilder;
@@ -37,7 +55,14 @@ public class ProxyStreamFactoryBuilder implements StreamFactoryBuilder
 
     private final HttpCacheConfiguration config;
     private final LongObjectBiConsumer<Runnable> scheduler;
+    private final EgressBudget egress;
+    private final ExpirySweeper sweeper;
+    private final LatencyHistograms histograms;
+    private final EventLog events;
+    private final HotKeyTracker hotKeys;
+    private final PurgeCommands commands;
     private final Long2ObjectHashMap<Request> correlations;
+    private final RouteFW routeRO = new RouteFW();
 
     private RouteManager router;
     private MutableDirectBuffer writeBuffer;
@@ -55,14 +80,44 @@ public class ProxyStreamFactoryBuilder implements StreamFactoryBuilder
     };
     private LongSupplier entryAcquires;
     private LongSupplier entryReleases;
+    private LongSupplier refreshEnqueues;
+    private LongSupplier refreshDequeues;
+    private LongSupplier refreshTimeouts;
+    private LongSupplier originFailures;
+    private LongSupplier breakerOpens;
+    private LongSupplier breakerCloses;
+    private LongSupplier breakerShortCircuits;
+    private LongSupplier admissionRejects;
+    private LongSupplier entryEvictions;
+    private LongSupplier ghostSamples;
+    private LongSupplier ghostMisses;
+    private LongSupplier ghostHits2x;
+    private LongSupplier ghostHits4x;
+    private LongSupplier ghostHits8x;
+    private LongSupplier entryExpirations;
+    private CacheCounters counters;
+
+    private long routeGeneration;
 
     public ProxyStreamFactoryBuilder(
             HttpCacheConfiguration config,
-            LongObjectBiConsumer<Runnable> scheduler)
+            LongObjectBiConsumer<Runnable> scheduler,
+            EgressBudget egress,
+            ExpirySweeper sweeper,
+            LatencyHistograms histograms,
+            EventLog events,
+            HotKeys hotKeys,
+            PurgeCommands commands)
     {
         this.config = config;
         this.correlations = new Long2ObjectHashMap<>();
         this.scheduler = scheduler;
+        this.egress = egress;
+        this.sweeper = sweeper;
+        this.histograms = histograms;
+        this.events = events;
+        this.hotKeys = new HotKeyTracker(hotKeys, scheduler);
+        this.commands = commands;
     }
 
     @Override
@@ -111,9 +166,41 @@ public class ProxyStreamFactoryBuilder implements StreamFactoryBuilder
     {
         entryAcquires = supplyCounter.apply("entry.acquires");
         entryReleases = supplyCounter.apply("entry.releases");
+        refreshEnqueues = supplyCounter.apply("refresh.enqueues");
+        refreshDequeues = supplyCounter.apply("refresh.dequeues");
+        refreshTimeouts = supplyCounter.apply("refresh.timeouts");
+        originFailures = supplyCounter.apply("origin.failures");
+        breakerOpens = supplyCounter.apply("breaker.opens");
+        breakerCloses = supplyCounter.apply("breaker.closes");
+        breakerShortCircuits = supplyCounter.apply("breaker.short.circuits");
+        admissionRejects = supplyCounter.apply("admission.rejects");
+        entryEvictions = supplyCounter.apply("entry.evictions");
+        ghostSamples = supplyCounter.apply("ghost.samples");
+        ghostMisses = supplyCounter.apply("ghost.misses");
+        ghostHits2x = supplyCounter.apply("ghost.hits.2x");
+        ghostHits4x = supplyCounter.apply("ghost.hits.4x");
+        ghostHits8x = supplyCounter.apply("ghost.hits.8x");
+        entryExpirations = supplyCounter.apply("entry.expirations");
+        counters = new CacheCounters(supplyCounter, histograms);
         return this;
     }
 
+    public boolean handleRoute(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        routeGeneration++;
+        if (msgTypeId == RouteFW.TYPE_ID && counters != null)
+        {
+            // register per route counters up front rather than on its first request
+            final RouteFW route = routeRO.wrap(buffer, index, index + length);
+            counters.route(route.targetRef());
+        }
+        return true;
+    }
+
     @Override
     public StreamFactory build()
     {
@@ -123,15 +210,72 @@ public class ProxyStreamFactoryBuilder implements StreamFactoryBuilder
             final int httpCacheCapacity = config.httpCacheCapacity();
             this.bufferPool = new Slab(httpCacheCapacity, slotCapacity, entryAcquires, entryReleases);
 
+            final OriginHealth health = new OriginHealth(
+                    config.originFailureThreshold(),
+                    config.originErrorRateThreshold() / 100.0,
+                    config.originBackoff(),
+                    config.originMaxBackoff(),
+                    config.originShortCircuit(),
+                    originFailures,
+                    breakerOpens,
+                    breakerCloses,
+                    breakerShortCircuits);
+
+            final RefreshDispatcher refreshes = new RefreshDispatcher(
+                    scheduler,
+                    health,
+                    config.refreshMaxInFlight(),
+                    config.refreshRate(),
+                    config.refreshTimeout(),
+                    refreshEnqueues,
+                    refreshDequeues,
+                    refreshTimeouts,
+                    histograms);
+
+            final int totalSlots = slotCapacity != 0 ? httpCacheCapacity / slotCapacity : 0;
+            final AdmissionFilter admission = new AdmissionFilter(
+                    totalSlots,
+                    bufferPool::acquiredSlots,
+                    config.admissionThreshold(),
+                    config.admissionFrequency(),
+                    admissionRejects);
+
+            // each entry holds a request slot and a response slot
+            final GhostCache ghost = new GhostCache(
+                    totalSlots / 2,
+                    config.ghostSampling(),
+                    ghostSamples,
+                    ghostMisses,
+                    ghostHits2x,
+                    ghostHits4x,
+                    ghostHits8x);
+
             this.cache = new Cache(
                     scheduler,
                     writeBuffer,
                     bufferPool,
                     correlations,
-                    supplyEtag);
+                    supplyEtag,
+                    egress,
+                    config.fanOutBatchSize(),
+                    refreshes,
+                    health,
+                    admission,
+                    newEvictionPolicy(config.evictionPolicy()),
+                    entryEvictions,
+                    ghost,
+                    config.sweepMaxStale(),
+                    entryExpirations,
+                    counters,
+                    histograms,
+                    events,
+                    hotKeys);
+            sweeper.sweep(cache::sweep);
+            commands.purge(cache::purgeURL, cache::purgePrefix, cache::purgeAuthScope, cache::purgeTag, cache::softPurgeTag);
         }
         return new ProxyStreamFactory(
                 router,
+                this::routeGeneration,
                 writeBuffer,
                 bufferPool,
                 supplyStreamId,
@@ -139,6 +283,35 @@ public class ProxyStreamFactoryBuilder implements StreamFactoryBuilder
                 correlations,
                 scheduler,
                 cache,
-                supplyEtag);
+                supplyEtag,
+                counters,
+                events,
+                hotKeys);
+    }
+
+    private static EvictionPolicy newEvictionPolicy(
+        String name)
+    {
+        EvictionPolicy eviction;
+        switch (name)
+        {
+            case EvictionPolicy.LRU:
+                eviction = new LruEvictionPolicy();
+                break;
+            case EvictionPolicy.CLOCK:
+                eviction = new ClockEvictionPolicy();
+                break;
+            case EvictionPolicy.GDSF:
+                eviction = new GdsfEvictionPolicy();
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognized eviction policy: " + name);
+        }
+        return eviction;
+    }
+
+    private long routeGeneration()
+    {
+        return routeGeneration;
     }
 }
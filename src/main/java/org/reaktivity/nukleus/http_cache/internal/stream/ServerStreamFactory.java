@@ -23,9 +23,9 @@ import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.function.MessageConsumer;
-import org.reaktivity.nukleus.function.MessagePredicate;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RouteTable;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.RouteTable.Route;
 import org.reaktivity.nukleus.http_cache.internal.stream.util.Writer;
-import org.reaktivity.nukleus.http_cache.internal.types.control.RouteFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.AbortFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.DataFW;
@@ -39,23 +39,25 @@ public class ServerStreamFactory implements StreamFactory
 {
 
     private final BeginFW beginRO = new BeginFW();
-    private final RouteFW routeRO = new RouteFW();
 
     private final WindowFW windowRO = new WindowFW();
     private final ResetFW resetRO = new ResetFW();
 
     private final RouteManager router;
+    private final RouteTable routes;
 
     private final LongSupplier supplyStreamId;
     private final Writer writer;
 
     public ServerStreamFactory(
         RouteManager router,
+        LongSupplier supplyRouteGeneration,
         MutableDirectBuffer writeBuffer,
         LongSupplier supplyStreamId,
         BufferPool bufferPool)
     {
         this.router = requireNonNull(router);
+        this.routes = new RouteTable(router, supplyRouteGeneration);
         this.supplyStreamId = requireNonNull(supplyStreamId);
         this.writer = new Writer(
                 writeBuffer,
@@ -79,17 +81,7 @@ public class ServerStreamFactory implements StreamFactory
             final BeginFW begin,
             final MessageConsumer networkThrottle)
     {
-        final long networkRef = begin.sourceRef();
-        final String acceptName = begin.source().asString();
-
-        final MessagePredicate filter = (t, b, o, l) ->
-        {
-            final RouteFW route = routeRO.wrap(b, o, l);
-            return networkRef == route.sourceRef() &&
-                    acceptName.equals(route.source().asString());
-        };
-
-        final RouteFW route = router.resolve(begin.authorization(), filter, this::wrapRoute);
+        final Route route = routes.resolve(begin.authorization(), begin.source(), begin.sourceRef());
 
         MessageConsumer newStream = null;
 
@@ -97,7 +89,7 @@ public class ServerStreamFactory implements StreamFactory
         {
             final long networkId = begin.streamId();
 
-            newStream = new ProxyAcceptStream(networkThrottle, networkId)::handleStream;
+            newStream = new ProxyAcceptStream(networkThrottle, networkId, route)::handleStream;
         }
 
         return newStream;
@@ -107,6 +99,7 @@ public class ServerStreamFactory implements StreamFactory
     {
         private final MessageConsumer acceptThrottle;
         private final long acceptStreamId;
+        private final Route route;
 
         private MessageConsumer streamState;
         private MessageConsumer acceptReply;
@@ -114,10 +107,12 @@ public class ServerStreamFactory implements StreamFactory
 
         private ProxyAcceptStream(
                 MessageConsumer acceptThrottle,
-                long acceptStreamId)
+                long acceptStreamId,
+                Route route)
         {
             this.acceptThrottle = acceptThrottle;
             this.acceptStreamId = acceptStreamId;
+            this.route = route;
             this.streamState = this::beforeBegin;
         }
 
@@ -150,28 +145,17 @@ public class ServerStreamFactory implements StreamFactory
         private void handleBegin(
                 BeginFW begin)
         {
-            final long acceptRef = beginRO.sourceRef();
-            final String acceptName = begin.source().asString();
-            final RouteFW connectRoute = resolveTarget(acceptRef, begin.authorization(), acceptName);
+            this.acceptReply = route.reply();
+            this.acceptReplyStreamId =  supplyStreamId.getAsLong();
+            final long acceptCorrelationId = begin.correlationId();
 
-            if (connectRoute == null)
-            {
-                writer.doReset(acceptThrottle, acceptStreamId);
-            }
-            else
+            writer.doHttpBegin(acceptReply, acceptReplyStreamId, 0L, acceptCorrelationId, hs ->
             {
-                this.acceptReply = router.supplyTarget(acceptName);
-                this.acceptReplyStreamId =  supplyStreamId.getAsLong();
-                final long acceptCorrelationId = begin.correlationId();
-
-                writer.doHttpBegin(acceptReply, acceptReplyStreamId, 0L, acceptCorrelationId, hs ->
-                {
-                    hs.item(h -> h.representation((byte) 0).name(":status").value("200"));
-                    hs.item(h -> h.representation((byte) 0).name("content-type").value("text/event-stream"));
-                });
-                this.streamState = this::afterBegin;
-                router.setThrottle(acceptName, acceptReplyStreamId, this::handleThrottle);
-            }
+                hs.item(h -> h.representation((byte) 0).name(":status").value("200"));
+                hs.item(h -> h.representation((byte) 0).name("content-type").value("text/event-stream"));
+            });
+            this.streamState = this::afterBegin;
+            router.setThrottle(route.sourceName(), acceptReplyStreamId, this::handleThrottle);
         }
 
         private void afterBegin(
@@ -231,26 +215,4 @@ public class ServerStreamFactory implements StreamFactory
         }
     }
 
-    RouteFW resolveTarget(
-            long sourceRef,
-            long authorization,
-            String sourceName)
-    {
-        MessagePredicate filter = (t, b, o, l) ->
-        {
-            RouteFW route = routeRO.wrap(b, o, l);
-            return sourceRef == route.sourceRef() && sourceName.equals(route.source().asString());
-        };
-
-        return router.resolve(authorization, filter, this::wrapRoute);
-    }
-
-    private RouteFW wrapRoute(
-            int msgTypeId,
-            DirectBuffer buffer,
-            int index,
-            int length)
-    {
-        return routeRO.wrap(buffer, index, index + length);
-    }
 }
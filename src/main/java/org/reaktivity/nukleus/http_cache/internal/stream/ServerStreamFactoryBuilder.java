@@ -18,6 +18,7 @@ package org.reaktivity.nukleus.http_cache.internal.stream;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
 import org.reaktivity.nukleus.buffer.BufferPool;
 import org.reaktivity.nukleus.route.RouteManager;
@@ -31,6 +32,8 @@ public class ServerStreamFactoryBuilder implements StreamFactoryBuilder
     private LongSupplier supplyStreamId;
     private BufferPool bufferPool;
 
+    private long routeGeneration;
+
     @Override
     public ServerStreamFactoryBuilder setRouteManager(
         RouteManager router)
@@ -70,10 +73,24 @@ public class ServerStreamFactoryBuilder implements StreamFactoryBuilder
         return this;
     }
 
+    public boolean handleRoute(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        routeGeneration++;
+        return true;
+    }
+
     @Override
     public StreamFactory build()
     {
-        return new ServerStreamFactory(router, writeBuffer, supplyStreamId, bufferPool);
+        return new ServerStreamFactory(router, this::routeGeneration, writeBuffer, supplyStreamId, bufferPool);
     }
 
+    private long routeGeneration()
+    {
+        return routeGeneration;
+    }
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.reaktivity.nukleus.Nukleus;
+
+/**
+ * Bytes that may be written from cache per duty cycle, shared by all streams serving cached payload.
+ * Writers that find the cycle exhausted, or other writers already waiting, defer themselves and are
+ * resumed round-robin, one frame per turn, on following cycles.  Each cycle resumes at most the writers
+ * already waiting when it starts, so a writer that defers itself again without consuming cannot spin.
+ */
+public class EgressBudget implements Nukleus
+{
+    private final int cycleBudget;
+    private final int maxFrameSize;
+    private final Deque<Runnable> deferred;
+
+    private int remaining;
+
+    public EgressBudget(
+        int cycleBudget,
+        int maxFrameSize)
+    {
+        this.cycleBudget = cycleBudget;
+        this.maxFrameSize = maxFrameSize;
+        this.deferred = new ArrayDeque<>();
+        this.remaining = cycleBudget;
+    }
+
+    public int maxFrameSize()
+    {
+        return maxFrameSize;
+    }
+
+    public boolean available()
+    {
+        return remaining > 0 && deferred.isEmpty();
+    }
+
+    public void consume(
+        int bytes)
+    {
+        remaining -= bytes;
+    }
+
+    public void defer(
+        Runnable writer)
+    {
+        deferred.add(writer);
+    }
+
+    @Override
+    public int process()
+    {
+        remaining = cycleBudget;
+
+        final int waiting = deferred.size();
+        int workCount = 0;
+        while (remaining > 0 && workCount < waiting)
+        {
+            deferred.poll().run();
+            workCount++;
+        }
+        return workCount;
+    }
+}
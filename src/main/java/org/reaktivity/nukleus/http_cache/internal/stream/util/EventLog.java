@@ -0,0 +1,236 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+import org.agrona.BitUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Flight recorder of per-request cache decisions, kept as a ring of fixed size records in a memory mapped
+ * file so the most recent decisions survive the process and can be summarised offline by {@link EventLogSummary}.
+ * Each record holds the wall clock time, decision code, request url hash, authorization scope, size in bytes
+ * and a duration in microseconds.  The single writer fills the record and then publishes it by advancing the
+ * position with an ordered write.  Readers re-check the position after reading to drop records the writer may
+ * have overwritten meanwhile.
+ */
+public final class EventLog
+{
+    public static final int HIT = 1;
+    public static final int MISS_ABSENT = 2;
+    public static final int MISS_PURGED = 3;
+    public static final int MISS_AUTH_SCOPE = 4;
+    public static final int MISS_VARY = 5;
+    public static final int MISS_FRESHNESS = 6;
+    public static final int ONLY_IF_CACHED = 7;
+    public static final int SHORT_CIRCUIT = 8;
+    public static final int REQUEST_UNCACHEABLE = 9;
+    public static final int REVALIDATION = 10;
+    public static final int RESPONSE_UNCACHEABLE = 11;
+    public static final int ADMISSION_REJECTED = 12;
+    public static final int RESPONSE_TOO_LARGE = 13;
+    public static final int STORED = 14;
+
+    static final String[] NAMES =
+    {
+        "unknown",
+        "hit",
+        "miss.absent",
+        "miss.purged",
+        "miss.auth.scope",
+        "miss.vary",
+        "miss.freshness",
+        "only.if.cached",
+        "short.circuit",
+        "request.uncacheable",
+        "revalidation",
+        "response.uncacheable",
+        "admission.rejected",
+        "response.too.large",
+        "stored"
+    };
+
+    static final int RECORD_LENGTH = 32;
+
+    private static final int TIMESTAMP_OFFSET = 0;
+    private static final int MICROS_OFFSET = TIMESTAMP_OFFSET + Long.BYTES;
+    private static final int CODE_OFFSET = MICROS_OFFSET + Long.BYTES;
+    private static final int HASH_OFFSET = CODE_OFFSET + Integer.BYTES;
+    private static final int AUTH_SCOPE_OFFSET = HASH_OFFSET + Integer.BYTES;
+    private static final int SIZE_OFFSET = AUTH_SCOPE_OFFSET + Integer.BYTES;
+
+    private static final int POSITION_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = POSITION_OFFSET + Long.BYTES;
+    private static final int HEADER_LENGTH = BitUtil.CACHE_LINE_LENGTH * 2;
+
+    private final AtomicBuffer buffer;
+    private final int capacity;
+    private final int mask;
+
+    private EventLog(
+        AtomicBuffer buffer,
+        int capacity)
+    {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Creates the event log file for writing, replacing any left by a previous run.
+     *
+     * @param capacity  number of records kept, rounded up to a power of two, or zero to record nothing
+     */
+    public static EventLog create(
+        Path directory,
+        int capacity)
+    {
+        EventLog events = new EventLog(null, 0);
+        if (capacity > 0)
+        {
+            final int records = BitUtil.findNextPositivePowerOfTwo(capacity);
+            try
+            {
+                Files.createDirectories(directory);
+            }
+            catch (IOException ex)
+            {
+                throw new UncheckedIOException(ex);
+            }
+            final AtomicBuffer buffer = new UnsafeBuffer(
+                    mapFile(directory, HEADER_LENGTH + records * RECORD_LENGTH, CREATE, TRUNCATE_EXISTING, READ, WRITE));
+            buffer.putInt(CAPACITY_OFFSET, records);
+            events = new EventLog(buffer, records);
+        }
+        return events;
+    }
+
+    /**
+     * Maps an existing event log file for reading.
+     */
+    public static EventLog map(
+        Path directory)
+    {
+        final AtomicBuffer header = new UnsafeBuffer(mapFile(directory, HEADER_LENGTH, READ, WRITE));
+        final int records = header.getIntVolatile(CAPACITY_OFFSET);
+        final AtomicBuffer buffer = new UnsafeBuffer(mapFile(directory, HEADER_LENGTH + records * RECORD_LENGTH, READ, WRITE));
+        return new EventLog(buffer, records);
+    }
+
+    private static MappedByteBuffer mapFile(
+        Path directory,
+        long length,
+        OpenOption... options)
+    {
+        try (FileChannel channel = FileChannel.open(directory.resolve("events"), options))
+        {
+            return channel.map(READ_WRITE, 0, length);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return capacity != 0;
+    }
+
+    public void record(
+        int code,
+        int requestURLHash,
+        int authScope,
+        int size,
+        long micros)
+    {
+        if (capacity != 0)
+        {
+            final long position = buffer.getLong(POSITION_OFFSET);
+            final int offset = HEADER_LENGTH + (int) (position & mask) * RECORD_LENGTH;
+            buffer.putLong(offset + TIMESTAMP_OFFSET, System.currentTimeMillis());
+            buffer.putLong(offset + MICROS_OFFSET, micros);
+            buffer.putInt(offset + CODE_OFFSET, code);
+            buffer.putInt(offset + HASH_OFFSET, requestURLHash);
+            buffer.putInt(offset + AUTH_SCOPE_OFFSET, authScope);
+            buffer.putInt(offset + SIZE_OFFSET, size);
+            buffer.putLongOrdered(POSITION_OFFSET, position + 1);
+        }
+    }
+
+    /**
+     * Reads the records still held by the log, oldest first.
+     *
+     * @return the number of records read
+     */
+    public int read(
+        EventHandler handler)
+    {
+        int count = 0;
+        if (capacity != 0)
+        {
+            final long end = buffer.getLongVolatile(POSITION_OFFSET);
+            for (long position = Math.max(end - capacity, 0L); position < end; position++)
+            {
+                final int offset = HEADER_LENGTH + (int) (position & mask) * RECORD_LENGTH;
+                final long timestamp = buffer.getLongVolatile(offset + TIMESTAMP_OFFSET);
+                final long micros = buffer.getLong(offset + MICROS_OFFSET);
+                final int code = buffer.getInt(offset + CODE_OFFSET);
+                final int requestURLHash = buffer.getInt(offset + HASH_OFFSET);
+                final int authScope = buffer.getInt(offset + AUTH_SCOPE_OFFSET);
+                final int size = buffer.getInt(offset + SIZE_OFFSET);
+                if (position > buffer.getLongVolatile(POSITION_OFFSET) - capacity)
+                {
+                    handler.onEvent(timestamp, code, requestURLHash, authScope, size, micros);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public static String name(
+        int code)
+    {
+        return code > 0 && code < NAMES.length ? NAMES[code] : NAMES[0];
+    }
+
+    @FunctionalInterface
+    public interface EventHandler
+    {
+        void onEvent(
+            long timestamp,
+            int code,
+            int requestURLHash,
+            int authScope,
+            int size,
+            long micros);
+    }
+}
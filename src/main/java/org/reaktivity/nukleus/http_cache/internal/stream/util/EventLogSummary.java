@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Summarises an {@link EventLog} by decision, so the reasons requests missed the cache can be compared.
+ *
+ * <pre>java ...EventLogSummary &lt;nukleus directory&gt;</pre>
+ *
+ * where the nukleus directory is the reaktor directory followed by {@code http-cache}.
+ */
+public final class EventLogSummary implements EventLog.EventHandler
+{
+    private final long[] counts = new long[EventLog.NAMES.length];
+    private final long[] bytes = new long[EventLog.NAMES.length];
+    private final long[] micros = new long[EventLog.NAMES.length];
+
+    private long firstTimestamp = Long.MAX_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    @Override
+    public void onEvent(
+        long timestamp,
+        int code,
+        int requestURLHash,
+        int authScope,
+        int size,
+        long micros)
+    {
+        final int index = code > 0 && code < counts.length ? code : 0;
+        counts[index]++;
+        bytes[index] += size;
+        this.micros[index] += micros;
+        firstTimestamp = Math.min(firstTimestamp, timestamp);
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+    }
+
+    public long count(
+        int code)
+    {
+        return counts[code];
+    }
+
+    /**
+     * @return requests with the given decision as a percentage of cacheable requests looked up in the cache
+     */
+    public double lookupPercent(
+        int code)
+    {
+        final long lookups = counts[EventLog.HIT] + counts[EventLog.MISS_ABSENT] + counts[EventLog.MISS_PURGED] +
+                counts[EventLog.MISS_AUTH_SCOPE] + counts[EventLog.MISS_VARY] + counts[EventLog.MISS_FRESHNESS];
+        return lookups != 0L ? 100.0 * counts[code] / lookups : 0.0;
+    }
+
+    public void print(
+        PrintStream out)
+    {
+        out.printf("%d events over %d ms%n", total(), Math.max(lastTimestamp - firstTimestamp, 0L));
+        out.printf("%-22s %10s %8s %12s %12s%n", "decision", "count", "lookup%", "avg bytes", "avg micros");
+        for (int code = 1; code < counts.length; code++)
+        {
+            if (counts[code] != 0L)
+            {
+                out.printf("%-22s %10d %8.2f %12d %12d%n", EventLog.name(code), counts[code], lookupPercent(code),
+                        bytes[code] / counts[code], micros[code] / counts[code]);
+            }
+        }
+    }
+
+    private long total()
+    {
+        long total = 0L;
+        for (long count : counts)
+        {
+            total += count;
+        }
+        return total;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        if (args.length != 1)
+        {
+            System.err.println("usage: EventLogSummary <nukleus directory>");
+            System.exit(1);
+        }
+
+        final Path directory = Paths.get(args[0]);
+        if (!Files.exists(directory.resolve("events")))
+        {
+            System.err.printf("no event log in %s%n", directory);
+            System.exit(1);
+        }
+
+        final EventLogSummary summary = new EventLogSummary();
+        EventLog.map(directory).read(summary);
+        summary.print(System.out);
+    }
+}
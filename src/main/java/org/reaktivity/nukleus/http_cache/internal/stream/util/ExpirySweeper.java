@@ -0,0 +1,50 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import java.util.function.IntUnaryOperator;
+
+import org.reaktivity.nukleus.Nukleus;
+
+/**
+ * Sweeps expired cache entries once per duty cycle, examining at most a fixed number of entries per cycle
+ * so reclaiming slots never stalls streams.
+ */
+public class ExpirySweeper implements Nukleus
+{
+    private final int cycleLimit;
+
+    private IntUnaryOperator sweep;
+
+    public ExpirySweeper(
+        int cycleLimit)
+    {
+        this.cycleLimit = cycleLimit;
+        this.sweep = limit -> 0;
+    }
+
+    public void sweep(
+        IntUnaryOperator sweep)
+    {
+        this.sweep = sweep;
+    }
+
+    @Override
+    public int process()
+    {
+        return sweep.applyAsInt(cycleLimit);
+    }
+}
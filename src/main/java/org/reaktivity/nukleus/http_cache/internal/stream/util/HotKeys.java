@@ -0,0 +1,250 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.agrona.BitUtil;
+import org.agrona.UnsafeAccess;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Snapshot of the hottest urls for each metric, published by the nukleus into a memory mapped file and read by the
+ * controller without coordinating with the data path.  The snapshot is guarded by a sequence lock: the writer makes
+ * the sequence odd before updating and even again after, and a reader retries until it has read between two equal
+ * even sequences.
+ */
+public final class HotKeys
+{
+    public static final int REQUESTS = 0;
+    public static final int BYTES = 1;
+    public static final int FETCHES = 2;
+    public static final int SUBSCRIBERS = 3;
+
+    static final String[] METRICS = { "requests", "bytes", "fetches", "subscribers" };
+
+    private static final int MAX_URL_LENGTH = 256;
+
+    private static final int HASH_OFFSET = 0;
+    private static final int URL_LENGTH_OFFSET = HASH_OFFSET + Integer.BYTES;
+    private static final int COUNT_OFFSET = URL_LENGTH_OFFSET + Integer.BYTES;
+    private static final int URL_OFFSET = COUNT_OFFSET + Long.BYTES;
+    private static final int KEY_LENGTH = URL_OFFSET + MAX_URL_LENGTH;
+
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = SEQUENCE_OFFSET + Long.BYTES;
+    private static final int SIZES_OFFSET = CAPACITY_OFFSET + Integer.BYTES;
+    private static final int HEADER_LENGTH = BitUtil.CACHE_LINE_LENGTH * 2;
+
+    private final AtomicBuffer buffer;
+    private final int capacity;
+
+    private HotKeys(
+        AtomicBuffer buffer,
+        int capacity)
+    {
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates the hot keys file for writing, replacing any left by a previous run.
+     *
+     * @param capacity  number of urls kept for each metric
+     */
+    public static HotKeys create(
+        Path directory,
+        int capacity)
+    {
+        try
+        {
+            Files.createDirectories(directory);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        final AtomicBuffer buffer = new UnsafeBuffer(
+                mapFile(directory, length(capacity), CREATE, TRUNCATE_EXISTING, READ, WRITE));
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        return new HotKeys(buffer, capacity);
+    }
+
+    /**
+     * Maps an existing hot keys file for reading.
+     */
+    public static HotKeys map(
+        Path directory)
+    {
+        final AtomicBuffer header = new UnsafeBuffer(mapFile(directory, HEADER_LENGTH, READ, WRITE));
+        final int capacity = header.getIntVolatile(CAPACITY_OFFSET);
+        return new HotKeys(new UnsafeBuffer(mapFile(directory, length(capacity), READ, WRITE)), capacity);
+    }
+
+    public static int metric(
+        String name)
+    {
+        int metric = -1;
+        for (int i = 0; i < METRICS.length && metric == -1; i++)
+        {
+            if (METRICS[i].equals(name))
+            {
+                metric = i;
+            }
+        }
+        return metric;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    public void beginUpdate()
+    {
+        buffer.putLongOrdered(SEQUENCE_OFFSET, buffer.getLong(SEQUENCE_OFFSET) + 1);
+        UnsafeAccess.UNSAFE.storeFence();
+    }
+
+    public void update(
+        int metric,
+        int rank,
+        int hash,
+        String url,
+        long count)
+    {
+        final int offset = keyOffset(metric, rank);
+        int length = 0;
+        if (url != null)
+        {
+            length = Math.min(url.length(), MAX_URL_LENGTH);
+            for (int i = 0; i < length; i++)
+            {
+                final char c = url.charAt(i);
+                buffer.putByte(offset + URL_OFFSET + i, c < 0x80 ? (byte) c : (byte) '?');
+            }
+        }
+        buffer.putInt(offset + HASH_OFFSET, hash);
+        buffer.putInt(offset + URL_LENGTH_OFFSET, length);
+        buffer.putLong(offset + COUNT_OFFSET, count);
+    }
+
+    public void updateSize(
+        int metric,
+        int size)
+    {
+        buffer.putInt(SIZES_OFFSET + metric * Integer.BYTES, size);
+    }
+
+    public void endUpdate()
+    {
+        buffer.putLongOrdered(SEQUENCE_OFFSET, buffer.getLong(SEQUENCE_OFFSET) + 1);
+    }
+
+    /**
+     * Counts for the same url tracked under different authorization scopes are combined.
+     *
+     * @return the urls most weighted by the metric with their counts, most weighted first, keyed by hash
+     *         as {@code #<hex>} when the url is not known
+     */
+    public Map<String, Long> read(
+        int metric)
+    {
+        Map<String, Long> keys = null;
+        while (keys == null)
+        {
+            final long sequence = buffer.getLongVolatile(SEQUENCE_OFFSET);
+            if ((sequence & 1L) == 0L)
+            {
+                final Map<String, Long> candidate = new LinkedHashMap<>();
+                final int size = Math.min(buffer.getInt(SIZES_OFFSET + metric * Integer.BYTES), capacity);
+                for (int rank = 0; rank < size; rank++)
+                {
+                    final int offset = keyOffset(metric, rank);
+                    final int length = Math.min(Math.max(buffer.getInt(offset + URL_LENGTH_OFFSET), 0), MAX_URL_LENGTH);
+                    final String url = length != 0 ? buffer.getStringWithoutLengthUtf8(offset + URL_OFFSET, length) :
+                            String.format("#%08x", buffer.getInt(offset + HASH_OFFSET));
+                    candidate.merge(url, buffer.getLong(offset + COUNT_OFFSET), Long::sum);
+                }
+                UnsafeAccess.UNSAFE.loadFence();
+                if (buffer.getLongVolatile(SEQUENCE_OFFSET) == sequence)
+                {
+                    keys = byCountDescending(candidate);
+                }
+            }
+            else
+            {
+                Thread.yield();
+            }
+        }
+        return keys;
+    }
+
+    private static Map<String, Long> byCountDescending(
+        Map<String, Long> counts)
+    {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        final Map<String, Long> sorted = new LinkedHashMap<>();
+        entries.forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    private int keyOffset(
+        int metric,
+        int rank)
+    {
+        return HEADER_LENGTH + (metric * capacity + rank) * KEY_LENGTH;
+    }
+
+    private static long length(
+        int capacity)
+    {
+        return HEADER_LENGTH + (long) METRICS.length * capacity * KEY_LENGTH;
+    }
+
+    private static MappedByteBuffer mapFile(
+        Path directory,
+        long length,
+        OpenOption... options)
+    {
+        try (FileChannel channel = FileChannel.open(directory.resolve("hot-keys"), options))
+        {
+            return channel.map(READ_WRITE, 0, length);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
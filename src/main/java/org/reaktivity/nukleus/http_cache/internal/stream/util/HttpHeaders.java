@@ -30,10 +30,14 @@ public final class HttpHeaders
     public static final String METHOD = ":method";
     public static final String WARNING = "warning";
     public static final String SURROGATE_CONTROL = "surrogate-control";
+    public static final String SURROGATE_KEY = "surrogate-key";
     public static final String PREFER = "prefer";
     public static final String IF_UNMODIFIED_SINCE = "if-unmodified-since";
     public static final String ETAG = "etag";
     public static final String DATE = "date";
     public static final String LAST_MODIFIED = "last-modified";
+    public static final String EXPIRES = "expires";
+    public static final String AUTHORIZATION = "authorization";
+    public static final String VARY = "vary";
 
 }
@@ -0,0 +1,242 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Fixed set of log-linear latency histograms in a memory mapped file, written by the nukleus and read by the
+ * controller.  Values are microseconds, bucketed exactly below 32 and with 16 buckets per power of two above,
+ * so percentiles are accurate to within about 6%.  Each histogram is a name followed by a total count and its
+ * bucket counts.  The single writer registers a histogram by writing its name and then publishing the name
+ * length, and publishes counts with ordered writes, so readers never observe a partial name.
+ */
+public final class LatencyHistograms
+{
+    public static final int NO_HISTOGRAM = -1;
+
+    static final int HISTOGRAMS = 64;
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_VALUE_BITS = 36;
+    static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int NAME_LENGTH_OFFSET = 0;
+    private static final int NAME_OFFSET = NAME_LENGTH_OFFSET + Integer.BYTES;
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final int COUNT_OFFSET = NAME_OFFSET + MAX_NAME_LENGTH + Integer.BYTES;
+    private static final int BUCKETS_OFFSET = COUNT_OFFSET + Long.BYTES;
+    private static final int HISTOGRAM_LENGTH = BUCKETS_OFFSET + BUCKETS * Long.BYTES;
+    private static final int FILE_LENGTH = HISTOGRAMS * HISTOGRAM_LENGTH;
+
+    private final AtomicBuffer buffer;
+
+    private LatencyHistograms(
+        AtomicBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates the histograms file for writing, replacing any left by a previous run.
+     */
+    public static LatencyHistograms create(
+        Path directory)
+    {
+        try
+        {
+            Files.createDirectories(directory);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        return new LatencyHistograms(new UnsafeBuffer(mapFile(directory, CREATE, TRUNCATE_EXISTING, READ, WRITE)));
+    }
+
+    /**
+     * Maps an existing histograms file for reading.
+     */
+    public static LatencyHistograms map(
+        Path directory)
+    {
+        return new LatencyHistograms(new UnsafeBuffer(mapFile(directory, READ, WRITE)));
+    }
+
+    private static MappedByteBuffer mapFile(
+        Path directory,
+        OpenOption... options)
+    {
+        try (FileChannel channel = FileChannel.open(directory.resolve("histograms"), options))
+        {
+            return channel.map(READ_WRITE, 0, FILE_LENGTH);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the histogram with this name, registering it if needed, or {@link #NO_HISTOGRAM} if all are in use
+     */
+    public int supply(
+        String name)
+    {
+        int histogram = find(name);
+        if (histogram == NO_HISTOGRAM)
+        {
+            for (int i = 0; i < HISTOGRAMS && histogram == NO_HISTOGRAM; i++)
+            {
+                final int offset = i * HISTOGRAM_LENGTH;
+                if (buffer.getIntVolatile(offset + NAME_LENGTH_OFFSET) == 0)
+                {
+                    final byte[] bytes = name.getBytes(UTF_8);
+                    final int length = Math.min(bytes.length, MAX_NAME_LENGTH);
+                    buffer.putBytes(offset + NAME_OFFSET, bytes, 0, length);
+                    buffer.putIntOrdered(offset + NAME_LENGTH_OFFSET, length);
+                    histogram = i;
+                }
+            }
+        }
+        return histogram;
+    }
+
+    public void record(
+        int histogram,
+        long valueMicros)
+    {
+        if (histogram != NO_HISTOGRAM)
+        {
+            final int offset = histogram * HISTOGRAM_LENGTH;
+            final int bucketOffset = offset + BUCKETS_OFFSET + bucket(valueMicros) * Long.BYTES;
+            buffer.putLongOrdered(bucketOffset, buffer.getLong(bucketOffset) + 1);
+            buffer.putLongOrdered(offset + COUNT_OFFSET, buffer.getLong(offset + COUNT_OFFSET) + 1);
+        }
+    }
+
+    public long count(
+        String name)
+    {
+        final int histogram = find(name);
+        return histogram != NO_HISTOGRAM ? buffer.getLongVolatile(histogram * HISTOGRAM_LENGTH + COUNT_OFFSET) : 0L;
+    }
+
+    /**
+     * @return the highest value in microseconds at or below which the given percentage of values fall,
+     *         or zero if nothing has been recorded
+     */
+    public long percentile(
+        String name,
+        double percentile)
+    {
+        long value = 0L;
+        final int histogram = find(name);
+        if (histogram != NO_HISTOGRAM)
+        {
+            final int offset = histogram * HISTOGRAM_LENGTH;
+            long total = 0L;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                total += buffer.getLongVolatile(offset + BUCKETS_OFFSET + i * Long.BYTES);
+            }
+
+            final long target = Math.max((long) Math.ceil(total * Math.min(percentile, 100.0) / 100.0), 1L);
+            long cumulative = 0L;
+            for (int i = 0; i < BUCKETS && total != 0L && cumulative < target; i++)
+            {
+                cumulative += buffer.getLongVolatile(offset + BUCKETS_OFFSET + i * Long.BYTES);
+                value = highestValue(i);
+            }
+        }
+        return value;
+    }
+
+    static int bucket(
+        long value)
+    {
+        final long clamped = Math.min(Math.max(value, 0L), MAX_VALUE);
+        int bucket = (int) clamped;
+        if (clamped >= SUB_BUCKETS << 1)
+        {
+            final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(clamped) - SUB_BUCKET_BITS;
+            bucket = (shift + 1) * SUB_BUCKETS + (int) (clamped >>> shift) - SUB_BUCKETS;
+        }
+        return bucket;
+    }
+
+    static long highestValue(
+        int bucket)
+    {
+        return bucket + 1 < SUB_BUCKETS << 1 ? bucket : lowestValue(bucket + 1) - 1;
+    }
+
+    private static long lowestValue(
+        int bucket)
+    {
+        final int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    private int find(
+        String name)
+    {
+        final byte[] bytes = name.getBytes(UTF_8);
+        final int length = Math.min(bytes.length, MAX_NAME_LENGTH);
+        int histogram = NO_HISTOGRAM;
+        int nameLength = -1;
+        for (int i = 0; i < HISTOGRAMS && histogram == NO_HISTOGRAM && nameLength != 0; i++)
+        {
+            final int offset = i * HISTOGRAM_LENGTH;
+            nameLength = buffer.getIntVolatile(offset + NAME_LENGTH_OFFSET);
+            if (nameLength == length && matches(offset + NAME_OFFSET, bytes, length))
+            {
+                histogram = i;
+            }
+        }
+        return histogram;
+    }
+
+    private boolean matches(
+        int offset,
+        byte[] bytes,
+        int length)
+    {
+        boolean matches = true;
+        for (int i = 0; i < length && matches; i++)
+        {
+            matches = buffer.getByte(offset + i) == bytes[i];
+        }
+        return matches;
+    }
+}
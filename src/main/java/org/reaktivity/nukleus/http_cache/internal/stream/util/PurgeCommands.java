@@ -0,0 +1,215 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.reaktivity.nukleus.Nukleus;
+
+/**
+ * Purge commands sent by controllers to the nukleus through a many to one ring buffer in a memory mapped file,
+ * so invalidation never waits on the data path.  The nukleus applies at most a fixed number of commands per
+ * duty cycle.
+ */
+public final class PurgeCommands implements Nukleus
+{
+    public static final int PURGE_URL = 1;
+    public static final int PURGE_PREFIX = 2;
+    public static final int PURGE_AUTH_SCOPE = 3;
+    public static final int PURGE_TAG = 4;
+    public static final int SOFT_PURGE_TAG = 5;
+
+    static final int CAPACITY = 64 * 1024;
+    static final int CYCLE_LIMIT = 16;
+
+    private final RingBuffer commands;
+    private final MessageHandler handler;
+    private final MutableDirectBuffer writeBuffer;
+
+    private ToIntFunction<String> purgeURL;
+    private ToIntFunction<String> purgePrefix;
+    private IntUnaryOperator purgeAuthScope;
+    private ToIntFunction<String> purgeTag;
+    private ToIntFunction<String> softPurgeTag;
+
+    private PurgeCommands(
+        MappedByteBuffer buffer)
+    {
+        this.commands = new ManyToOneRingBuffer(new UnsafeBuffer(buffer));
+        this.handler = this::handleCommand;
+        this.writeBuffer = new UnsafeBuffer(new byte[commands.maxMsgLength()]);
+        this.purgeURL = url -> 0;
+        this.purgePrefix = prefix -> 0;
+        this.purgeAuthScope = authScope -> 0;
+        this.purgeTag = tag -> 0;
+        this.softPurgeTag = tag -> 0;
+    }
+
+    /**
+     * Creates the command file for reading by the nukleus, replacing any left by a previous run.
+     */
+    public static PurgeCommands create(
+        Path directory)
+    {
+        try
+        {
+            Files.createDirectories(directory);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        return new PurgeCommands(mapFile(directory, CREATE, TRUNCATE_EXISTING, READ, WRITE));
+    }
+
+    /**
+     * Maps an existing command file for writing by a controller.
+     */
+    public static PurgeCommands map(
+        Path directory)
+    {
+        return new PurgeCommands(mapFile(directory, READ, WRITE));
+    }
+
+    public void purge(
+        ToIntFunction<String> purgeURL,
+        ToIntFunction<String> purgePrefix,
+        IntUnaryOperator purgeAuthScope,
+        ToIntFunction<String> purgeTag,
+        ToIntFunction<String> softPurgeTag)
+    {
+        this.purgeURL = purgeURL;
+        this.purgePrefix = purgePrefix;
+        this.purgeAuthScope = purgeAuthScope;
+        this.purgeTag = purgeTag;
+        this.softPurgeTag = softPurgeTag;
+    }
+
+    @Override
+    public int process()
+    {
+        return commands.read(handler, CYCLE_LIMIT);
+    }
+
+    /**
+     * @return false if the url is too long or the nukleus has not kept up with earlier commands
+     */
+    public boolean purgeURL(
+        String url)
+    {
+        return write(PURGE_URL, url);
+    }
+
+    public boolean purgePrefix(
+        String prefix)
+    {
+        return write(PURGE_PREFIX, prefix);
+    }
+
+    public boolean purgeAuthScope(
+        short authScope)
+    {
+        writeBuffer.putShort(0, authScope);
+        return commands.write(PURGE_AUTH_SCOPE, writeBuffer, 0, Short.BYTES);
+    }
+
+    /**
+     * @param soft  true to mark tagged entries stale rather than remove them
+     */
+    public boolean purgeTag(
+        String tag,
+        boolean soft)
+    {
+        return write(soft ? SOFT_PURGE_TAG : PURGE_TAG, tag);
+    }
+
+    private boolean write(
+        int command,
+        String url)
+    {
+        final byte[] bytes = url.getBytes(UTF_8);
+        boolean written = false;
+        if (bytes.length <= writeBuffer.capacity())
+        {
+            writeBuffer.putBytes(0, bytes);
+            written = commands.write(command, writeBuffer, 0, bytes.length);
+        }
+        return written;
+    }
+
+    private void handleCommand(
+        int command,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (command)
+        {
+            case PURGE_URL:
+                purgeURL.applyAsInt(buffer.getStringWithoutLengthUtf8(index, length));
+                break;
+            case PURGE_PREFIX:
+                purgePrefix.applyAsInt(buffer.getStringWithoutLengthUtf8(index, length));
+                break;
+            case PURGE_AUTH_SCOPE:
+                purgeAuthScope.applyAsInt(buffer.getShort(index));
+                break;
+            case PURGE_TAG:
+                purgeTag.applyAsInt(buffer.getStringWithoutLengthUtf8(index, length));
+                break;
+            case SOFT_PURGE_TAG:
+                softPurgeTag.applyAsInt(buffer.getStringWithoutLengthUtf8(index, length));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static MappedByteBuffer mapFile(
+        Path directory,
+        OpenOption... options)
+    {
+        try (FileChannel channel = FileChannel.open(directory.resolve("commands"), options))
+        {
+            return channel.map(READ_WRITE, 0, CAPACITY + RingBufferDescriptor.TRAILER_LENGTH);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
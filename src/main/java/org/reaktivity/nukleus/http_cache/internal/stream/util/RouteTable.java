@@ -0,0 +1,256 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.reaktivity.nukleus.function.MessageConsumer;
+import org.reaktivity.nukleus.function.MessageFunction;
+import org.reaktivity.nukleus.function.MessagePredicate;
+import org.reaktivity.nukleus.http_cache.internal.types.StringFW;
+import org.reaktivity.nukleus.http_cache.internal.types.control.RouteFW;
+import org.reaktivity.nukleus.route.RouteManager;
+
+/**
+ * Caches route resolution by (source name, sourceRef, authorization) so stream setup is a primitive
+ * lookup instead of a scan over all routes decoding each source name.  Source names are interned by
+ * comparing the raw string bytes, and the whole table is dropped whenever the route generation changes.
+ * Each sourceRef keeps at most {@link #MAX_ROUTES_PER_SOURCE_REF} resolutions, most recently used first,
+ * so clients presenting many distinct authorizations cannot grow the table or slow down lookups.
+ */
+public final class RouteTable
+{
+    static final int MAX_ROUTES_PER_SOURCE_REF = 16;
+
+    private final RouteFW routeRO = new RouteFW();
+
+    private final RouteManager router;
+    private final LongSupplier supplyGeneration;
+    private final Long2ObjectHashMap<Route> routesBySourceRef;
+    private final List<byte[]> nameBytes;
+    private final List<String> names;
+    private final MessagePredicate resolveFilter;
+    private final MessageFunction<RouteFW> wrapRoute;
+
+    private long generation;
+    private long resolveSourceRef;
+    private byte[] resolveName;
+
+    public RouteTable(
+        RouteManager router,
+        LongSupplier supplyGeneration)
+    {
+        this.router = router;
+        this.supplyGeneration = supplyGeneration;
+        this.generation = supplyGeneration.getAsLong();
+        this.routesBySourceRef = new Long2ObjectHashMap<>();
+        this.nameBytes = new ArrayList<>();
+        this.names = new ArrayList<>();
+        this.resolveFilter = this::matchesSource;
+        this.wrapRoute = this::wrapRoute;
+    }
+
+    public Route resolve(
+        long authorization,
+        StringFW source,
+        long sourceRef)
+    {
+        final long currentGeneration = supplyGeneration.getAsLong();
+        if (generation != currentGeneration)
+        {
+            routesBySourceRef.clear();
+            generation = currentGeneration;
+        }
+
+        final int nameId = supplyNameId(source);
+
+        final Route first = routesBySourceRef.get(sourceRef);
+        Route previous = null;
+        Route route = first;
+        int count = 0;
+        while (route != null && (route.nameId != nameId || route.authorization != authorization))
+        {
+            count++;
+            if (count == MAX_ROUTES_PER_SOURCE_REF)
+            {
+                // evict least recently used
+                previous.next = null;
+                route = null;
+            }
+            else
+            {
+                previous = route;
+                route = route.next;
+            }
+        }
+
+        if (route == null)
+        {
+            route = newRoute(authorization, nameId, sourceRef);
+        }
+        else if (previous != null)
+        {
+            // move to front
+            previous.next = route.next;
+            route.next = first;
+            routesBySourceRef.put(sourceRef, route);
+        }
+
+        return route.targetName != null ? route : null;
+    }
+
+    private Route newRoute(
+        long authorization,
+        int nameId,
+        long sourceRef)
+    {
+        this.resolveSourceRef = sourceRef;
+        this.resolveName = nameBytes.get(nameId);
+        final RouteFW resolved = router.resolve(authorization, resolveFilter, wrapRoute);
+        this.resolveName = null;
+
+        final String sourceName = names.get(nameId);
+        final String targetName = resolved != null ? resolved.target().asString() : null;
+        final long targetRef = resolved != null ? resolved.targetRef() : 0L;
+
+        final Route route = new Route(nameId, authorization, sourceName, targetName, targetRef);
+        route.next = routesBySourceRef.put(sourceRef, route);
+        return route;
+    }
+
+    private int supplyNameId(
+        StringFW source)
+    {
+        final DirectBuffer buffer = source.buffer();
+        final int offset = source.offset() + 1;
+        final int length = source.sizeof() - 1;
+
+        for (int nameId = 0; nameId < nameBytes.size(); nameId++)
+        {
+            if (equals(nameBytes.get(nameId), buffer, offset, length))
+            {
+                return nameId;
+            }
+        }
+
+        final byte[] bytes = new byte[length];
+        buffer.getBytes(offset, bytes);
+        nameBytes.add(bytes);
+        names.add(new String(bytes, UTF_8));
+        return nameBytes.size() - 1;
+    }
+
+    private boolean matchesSource(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        final RouteFW route = routeRO.wrap(buffer, index, index + length);
+        final StringFW source = route.source();
+        return resolveSourceRef == route.sourceRef() &&
+                equals(resolveName, source.buffer(), source.offset() + 1, source.sizeof() - 1);
+    }
+
+    private RouteFW wrapRoute(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int index,
+        int length)
+    {
+        return routeRO.wrap(buffer, index, index + length);
+    }
+
+    private static boolean equals(
+        byte[] bytes,
+        DirectBuffer buffer,
+        int offset,
+        int length)
+    {
+        boolean equal = bytes.length == length;
+        for (int i = 0; equal && i < length; i++)
+        {
+            equal = bytes[i] == buffer.getByte(offset + i);
+        }
+        return equal;
+    }
+
+    public final class Route
+    {
+        private final int nameId;
+        private final long authorization;
+        private final String sourceName;
+        private final String targetName;
+        private final long targetRef;
+
+        private Route next;
+        private MessageConsumer reply;
+        private MessageConsumer target;
+
+        private Route(
+            int nameId,
+            long authorization,
+            String sourceName,
+            String targetName,
+            long targetRef)
+        {
+            this.nameId = nameId;
+            this.authorization = authorization;
+            this.sourceName = sourceName;
+            this.targetName = targetName;
+            this.targetRef = targetRef;
+        }
+
+        public String sourceName()
+        {
+            return sourceName;
+        }
+
+        public String targetName()
+        {
+            return targetName;
+        }
+
+        public long targetRef()
+        {
+            return targetRef;
+        }
+
+        public MessageConsumer reply()
+        {
+            if (reply == null)
+            {
+                reply = router.supplyTarget(sourceName);
+            }
+            return reply;
+        }
+
+        public MessageConsumer target()
+        {
+            if (target == null)
+            {
+                target = router.supplyTarget(targetName);
+            }
+            return target;
+        }
+    }
+}
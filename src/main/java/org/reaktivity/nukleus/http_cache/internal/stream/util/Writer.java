@@ -37,6 +37,7 @@ import org.reaktivity.nukleus.http_cache.internal.types.Flyweight;
 import org.reaktivity.nukleus.http_cache.internal.types.HttpHeaderFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW;
 import org.reaktivity.nukleus.http_cache.internal.types.ListFW.Builder;
+import org.reaktivity.nukleus.http_cache.internal.types.OctetsFW;
 import org.reaktivity.nukleus.http_cache.internal.types.String16FW;
 import org.reaktivity.nukleus.http_cache.internal.types.StringFW;
 import org.reaktivity.nukleus.http_cache.internal.types.stream.AbortFW;
@@ -59,11 +60,20 @@ public class Writer
     private final WindowFW.Builder windowRW = new WindowFW.Builder();
     private final ResetFW.Builder resetRW = new ResetFW.Builder();
     private final AbortFW.Builder abortRW = new AbortFW.Builder();
+    private final HttpHeaderFW.Builder httpHeaderRW = new HttpHeaderFW.Builder();
 
     final ListFW<HttpHeaderFW> requestHeadersRO = new HttpBeginExFW().headers();
 
     private final MutableDirectBuffer writeBuffer;
     private final BufferPool bufferPool;
+    private final DirectBuffer status503;
+    private final DirectBuffer status504;
+    private final Consumer<OctetsFW.Builder> appendHeader;
+    private final Flyweight.Builder.Visitor visitAppendHeader;
+
+    private ListFW<HttpHeaderFW> appendHeaders;
+    private String appendName;
+    private String appendValue;
 
     public Writer(
             MutableDirectBuffer writeBuffer,
@@ -71,6 +81,10 @@ public class Writer
     {
         this.writeBuffer = writeBuffer;
         this.bufferPool = bufferPool;
+        this.appendHeader = this::appendHeader;
+        this.visitAppendHeader = this::visitAppendHeader;
+        this.status503 = encodeHttpBeginEx(e -> e.item(h -> h.representation((byte) 0).name(STATUS).value("503")));
+        this.status504 = encodeHttpBeginEx(e -> e.item(h -> h.representation((byte) 0).name(STATUS).value("504")));
     }
 
     public void doHttpBegin(
@@ -92,6 +106,96 @@ public class Writer
 
     }
 
+    public void doHttpBegin(
+        MessageConsumer target,
+        long targetStreamId,
+        long targetRef,
+        long correlationId,
+        DirectBuffer extension,
+        int offset,
+        int length)
+    {
+        BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                               .streamId(targetStreamId)
+                               .source(SOURCE_NAME_BUFFER, 0, SOURCE_NAME_BUFFER.capacity())
+                               .sourceRef(targetRef)
+                               .correlationId(correlationId)
+                               .extension(extension, offset, length)
+                               .build();
+
+        target.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+    }
+
+    public void doHttpBegin(
+        MessageConsumer target,
+        long targetStreamId,
+        long targetRef,
+        long correlationId,
+        ListFW<HttpHeaderFW> headers)
+    {
+        doHttpBegin(target, targetStreamId, targetRef, correlationId, headers.buffer(), headers.offset(), headers.sizeof());
+    }
+
+    public void doHttpBegin(
+        MessageConsumer target,
+        long targetStreamId,
+        long targetRef,
+        long correlationId,
+        ListFW<HttpHeaderFW> headers,
+        String appendName,
+        String appendValue)
+    {
+        this.appendHeaders = headers;
+        this.appendName = appendName;
+        this.appendValue = appendValue;
+
+        BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                               .streamId(targetStreamId)
+                               .source(SOURCE_NAME_BUFFER, 0, SOURCE_NAME_BUFFER.capacity())
+                               .sourceRef(targetRef)
+                               .correlationId(correlationId)
+                               .extension(appendHeader)
+                               .build();
+
+        this.appendHeaders = null;
+        target.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
+    }
+
+    private void appendHeader(
+        OctetsFW.Builder extension)
+    {
+        extension.set(visitAppendHeader);
+    }
+
+    private int visitAppendHeader(
+        MutableDirectBuffer buffer,
+        int offset,
+        int limit)
+    {
+        final int headersSize = appendHeaders.sizeof();
+        buffer.putBytes(offset, appendHeaders.buffer(), appendHeaders.offset(), headersSize);
+
+        final HttpHeaderFW header = httpHeaderRW.wrap(buffer, offset + headersSize, limit)
+                                                .representation((byte) 0)
+                                                .name(appendName)
+                                                .value(appendValue)
+                                                .build();
+
+        return header.limit() - offset;
+    }
+
+    public DirectBuffer encodeHttpBeginEx(
+        Consumer<ListFW.Builder<HttpHeaderFW.Builder, HttpHeaderFW>> mutator)
+    {
+        final HttpBeginExFW beginEx = httpBeginExRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                                                   .headers(mutator)
+                                                   .build();
+
+        final MutableDirectBuffer encoded = new UnsafeBuffer(new byte[beginEx.sizeof()]);
+        encoded.putBytes(0, beginEx.buffer(), beginEx.offset(), beginEx.sizeof());
+        return encoded;
+    }
+
     public void doHttpResponseWithUpdatedCacheControl(
             MessageConsumer target,
             long targetStreamId,
@@ -114,6 +218,16 @@ public class Writer
         target.accept(begin.typeId(), begin.buffer(), begin.offset(), begin.sizeof());
     }
 
+    public DirectBuffer encodeResponseWithUpdatedCacheControl(
+            CacheControl cacheControlFW,
+            ListFW<HttpHeaderFW> responseHeaders,
+            int staleWhileRevalidate,
+            String etag)
+    {
+        return encodeHttpBeginEx(
+                builder -> updateResponseHeaders(builder, cacheControlFW, responseHeaders, staleWhileRevalidate, etag));
+    }
+
     private void updateResponseHeaders(
             Builder<HttpHeaderFW.Builder, HttpHeaderFW> builder,
             CacheControl cacheControlFW,
@@ -137,7 +251,7 @@ public class Writer
                         StringBuilder cacheControlDirectives = new StringBuilder();
                         cacheControlFW.getValues().entrySet().stream().forEach(e ->
                         {
-                            String directive = e.getKey(); e.getValue();
+                            String directive = e.getKey();
                             String optionalValue = e.getValue();
                             if (cacheControlDirectives.length() > 0)
                             {
@@ -159,6 +273,7 @@ public class Writer
                                 }
                             }
                         });
+                        builder.item(header -> header.name(nameFW).value(cacheControlDirectives.toString()));
                     }
                     else
                     {
@@ -375,10 +490,18 @@ public class Writer
         long acceptReplyStreamId,
         long acceptCorrelationId)
     {
-        this.doHttpBegin(acceptReply, acceptReplyStreamId, 0L, acceptCorrelationId, e ->
-        e.item(h -> h.representation((byte) 0)
-                .name(STATUS)
-                .value("503")));
+        this.doHttpBegin(acceptReply, acceptReplyStreamId, 0L, acceptCorrelationId,
+                status503, 0, status503.capacity());
+        this.doAbort(acceptReply, acceptReplyStreamId);
+    }
+
+    public void do504AndAbort(
+        MessageConsumer acceptReply,
+        long acceptReplyStreamId,
+        long acceptCorrelationId)
+    {
+        this.doHttpBegin(acceptReply, acceptReplyStreamId, 0L, acceptCorrelationId,
+                status504, 0, status504.capacity());
         this.doAbort(acceptReply, acceptReplyStreamId);
     }
 }
@@ -39,7 +39,7 @@ public class ControlIT
         .directory("target/nukleus-itests")
         .commandBufferCapacity(1024)
         .responseBufferCapacity(1024)
-        .counterValuesBufferCapacity(1024)
+        .counterValuesBufferCapacity(16384)
         .nukleus("http-cache"::equals);
 
     @Rule
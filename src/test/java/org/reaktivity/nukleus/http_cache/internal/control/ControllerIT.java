@@ -42,7 +42,7 @@ public class ControllerIT
         .directory("target/nukleus-itests")
         .commandBufferCapacity(1024)
         .responseBufferCapacity(1024)
-        .counterValuesBufferCapacity(1024)
+        .counterValuesBufferCapacity(16384)
         .controller(HttpCacheController.class::equals);
 
     @Rule
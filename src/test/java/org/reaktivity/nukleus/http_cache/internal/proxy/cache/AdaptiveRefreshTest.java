@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveRefreshTest
+{
+
+    @Test
+    public void shouldPollAtMaxAgeUntilUnchangedPollsObserved()
+    {
+        final AdaptiveRefresh refresh = new AdaptiveRefresh();
+        Assert.assertEquals(1000L, refresh.nextInterval(1000L, 10000L, 0.0));
+    }
+
+    @Test
+    public void shouldStretchIntervalForUnchangedEntry()
+    {
+        final AdaptiveRefresh refresh = new AdaptiveRefresh();
+        long previous = refresh.nextInterval(1000L, 10000L, 0.0);
+        for (int i = 0; i < 5; i++)
+        {
+            refresh.observe(false);
+            final long interval = refresh.nextInterval(1000L, 10000L, 0.0);
+            Assert.assertTrue(interval > previous);
+            previous = interval;
+        }
+    }
+
+    @Test
+    public void shouldBoundStretchByFreshnessExtension()
+    {
+        final AdaptiveRefresh refresh = new AdaptiveRefresh();
+        for (int i = 0; i < 100; i++)
+        {
+            refresh.observe(false);
+        }
+        Assert.assertEquals(3000L, refresh.nextInterval(1000L, 2000L, 0.99));
+        Assert.assertEquals(8000L, refresh.nextInterval(1000L, 60000L, 0.99));
+    }
+
+    @Test
+    public void shouldShrinkIntervalWhenEntryChangesAgain()
+    {
+        final AdaptiveRefresh refresh = new AdaptiveRefresh();
+        for (int i = 0; i < 10; i++)
+        {
+            refresh.observe(false);
+        }
+        final long stretched = refresh.nextInterval(1000L, 10000L, 0.0);
+        refresh.observe(true);
+        refresh.observe(true);
+        Assert.assertTrue(refresh.nextInterval(1000L, 10000L, 0.0) < stretched);
+    }
+
+    @Test
+    public void shouldOnlyJitterForward()
+    {
+        final AdaptiveRefresh refresh = new AdaptiveRefresh();
+        final long interval = refresh.nextInterval(1000L, 10000L, 0.5);
+        Assert.assertTrue(interval >= 1000L);
+        Assert.assertTrue(interval <= 1100L);
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EarlyRefreshTest
+{
+
+    @Test
+    public void shouldNotRefreshBeforeHitRateObserved()
+    {
+        final EarlyRefresh early = new EarlyRefresh();
+        early.fetched(100L);
+        early.hit(1000L);
+        Assert.assertFalse(early.shouldRefresh(1000L, 1001L, 0.0001));
+    }
+
+    @Test
+    public void shouldRefreshHotEntryCloseToStaleAt()
+    {
+        final EarlyRefresh early = hitEvery(10L, 100L);
+        Assert.assertTrue(early.shouldRefresh(10000L, 10050L, 0.5));
+        Assert.assertFalse(early.shouldRefresh(10000L, 20000L, 0.5));
+    }
+
+    @Test
+    public void shouldRarelyRefreshColdEntry()
+    {
+        final EarlyRefresh early = hitEvery(10000L, 100L);
+        Assert.assertFalse(early.shouldRefresh(100000L, 100050L, 0.5));
+    }
+
+    @Test
+    public void shouldNotRefreshOnceStale()
+    {
+        final EarlyRefresh early = hitEvery(10L, 100L);
+        Assert.assertFalse(early.shouldRefresh(10000L, 10000L, 0.0001));
+    }
+
+    private static EarlyRefresh hitEvery(
+        long intervalMillis,
+        long fetchMillis)
+    {
+        final EarlyRefresh early = new EarlyRefresh();
+        early.fetched(fetchMillis);
+        for (int i = 0; i < 10; i++)
+        {
+            early.hit(i * intervalMillis);
+        }
+        return early;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvictionPolicyTest
+{
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed()
+    {
+        final EvictionPolicy lru = new LruEvictionPolicy();
+        lru.admitted(1, 100, 10L);
+        lru.admitted(2, 100, 10L);
+        lru.admitted(3, 100, 10L);
+        lru.accessed(1);
+        Assert.assertEquals(2, lru.victim());
+
+        lru.removed(2);
+        Assert.assertEquals(3, lru.victim());
+    }
+
+    @Test
+    public void shouldGiveAccessedEntriesSecondChance()
+    {
+        final EvictionPolicy clock = new ClockEvictionPolicy();
+        clock.admitted(1, 100, 10L);
+        clock.admitted(2, 100, 10L);
+        clock.admitted(3, 100, 10L);
+        clock.accessed(1);
+        clock.accessed(2);
+        Assert.assertEquals(3, clock.victim());
+
+        clock.removed(3);
+        Assert.assertEquals(1, clock.victim());
+
+        clock.removed(1);
+        clock.removed(2);
+        Assert.assertTrue(clock.isEmpty());
+        clock.admitted(4, 100, 10L);
+        Assert.assertEquals(4, clock.victim());
+    }
+
+    @Test
+    public void shouldKeepEntriesWithMostOriginTimePerByte()
+    {
+        final GdsfEvictionPolicy gdsf = new GdsfEvictionPolicy();
+        gdsf.admitted(1, 2 * 1024 * 1024, 3000L);
+        gdsf.admitted(2, 1024, 5L);
+        gdsf.admitted(3, 1024, 50L);
+        Assert.assertEquals(1, gdsf.victim());
+
+        gdsf.admitted(1, 1024, 3000L);
+        Assert.assertEquals(2, gdsf.victim());
+    }
+
+    @Test
+    public void shouldAgeEntriesByInflation()
+    {
+        final GdsfEvictionPolicy gdsf = new GdsfEvictionPolicy();
+        gdsf.admitted(1, 1000, 10L);
+        gdsf.admitted(2, 1000, 20L);
+        for (int i = 0; i < 3; i++)
+        {
+            gdsf.accessed(2);
+        }
+        Assert.assertEquals(1, gdsf.victim());
+
+        gdsf.evicted(gdsf.victim());
+        gdsf.admitted(3, 1000, 10L);
+        Assert.assertEquals(0.02, gdsf.priority(3), 0.0001);
+        Assert.assertFalse(gdsf.isEmpty());
+    }
+
+    @Test
+    public void shouldNotAgeEntriesOnRemoval()
+    {
+        final GdsfEvictionPolicy gdsf = new GdsfEvictionPolicy();
+        gdsf.admitted(1, 1000, 10L);
+        gdsf.admitted(2, 1000, 20L);
+
+        gdsf.removed(gdsf.victim());
+        gdsf.admitted(3, 1000, 10L);
+        Assert.assertEquals(0.01, gdsf.priority(3), 0.0001);
+    }
+
+    @Test
+    public void shouldEvictInPriorityOrderAsHeapGrows()
+    {
+        final GdsfEvictionPolicy gdsf = new GdsfEvictionPolicy();
+        for (int i = 0; i < 200; i++)
+        {
+            gdsf.admitted(i - 100, 1000, 1 + (i * 37) % 200);
+        }
+        gdsf.removed(-100);
+        gdsf.accessed(-1);
+
+        double priority = 0.0;
+        int evicted = 0;
+        while (!gdsf.isEmpty())
+        {
+            final int victim = gdsf.victim();
+            Assert.assertTrue(gdsf.priority(victim) >= priority);
+            priority = gdsf.priority(victim);
+            gdsf.evicted(victim);
+            evicted++;
+        }
+        Assert.assertEquals(199, evicted);
+        Assert.assertEquals(0.0, gdsf.priority(-1), 0.0);
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpiryIndexTest
+{
+    private final ExpiryIndex<String> index = new ExpiryIndex<>(1000L, 16, 0L);
+    private final List<String> swept = new ArrayList<>();
+
+    @Test
+    public void shouldSweepEntriesOnceTheirBucketHasEnded()
+    {
+        index.add("a", 1500L);
+        index.add("b", 2500L);
+        index.add("c", 2700L);
+
+        Assert.assertEquals(0, index.sweep(1999L, 10, swept::add));
+        Assert.assertEquals(1, index.sweep(2000L, 10, swept::add));
+        Assert.assertEquals(2, index.sweep(5000L, 10, swept::add));
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), swept);
+    }
+
+    @Test
+    public void shouldLimitWorkPerSweep()
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            index.add("e" + i, 100L * i);
+        }
+
+        Assert.assertEquals(2, index.sweep(1000L, 2, swept::add));
+        Assert.assertEquals(2, index.sweep(1000L, 2, swept::add));
+        Assert.assertEquals(1, index.sweep(1000L, 2, swept::add));
+        Assert.assertEquals(5, swept.size());
+    }
+
+    @Test
+    public void shouldHoldEntriesBeyondWheelInFurthestBucket()
+    {
+        index.add("far", 100000L);
+
+        Assert.assertEquals(0, index.sweep(15000L, 10, swept::add));
+        Assert.assertEquals(1, index.sweep(16000L, 10, swept::add));
+        Assert.assertEquals(Arrays.asList("far"), swept);
+    }
+}
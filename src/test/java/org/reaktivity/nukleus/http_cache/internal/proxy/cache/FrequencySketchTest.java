@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FrequencySketchTest
+{
+
+    @Test
+    public void shouldCountFirstOccurrenceInDoorkeeperOnly()
+    {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        Assert.assertEquals(0, sketch.frequency("/hot".hashCode()));
+        sketch.increment("/hot".hashCode());
+        Assert.assertEquals(1, sketch.frequency("/hot".hashCode()));
+        sketch.increment("/hot".hashCode());
+        Assert.assertEquals(2, sketch.frequency("/hot".hashCode()));
+    }
+
+    @Test
+    public void shouldSaturateAtMaximumFrequency()
+    {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 100; i++)
+        {
+            sketch.increment("/hot".hashCode());
+        }
+        Assert.assertEquals(FrequencySketch.MAX_FREQUENCY + 1, sketch.frequency("/hot".hashCode()));
+    }
+
+    @Test
+    public void shouldAgeFrequenciesAfterSample()
+    {
+        final FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 9; i++)
+        {
+            sketch.increment("/hot".hashCode());
+        }
+        Assert.assertEquals(9, sketch.frequency("/hot".hashCode()));
+
+        for (int i = 0; i < 10 * 64; i++)
+        {
+            sketch.increment(("/cold/" + i).hashCode());
+        }
+        Assert.assertTrue(sketch.frequency("/hot".hashCode()) <= 4);
+        Assert.assertTrue(sketch.frequency("/cold/0".hashCode()) <= 1);
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.function.LongSupplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GhostCacheTest
+{
+    private final long[] counts = new long[5];
+
+    @Test
+    public void shouldCountMissesThatWouldHitWithMoreCapacity()
+    {
+        final GhostCache ghost = newGhostCache(4, 1);
+        for (int i = 0; i < 20; i++)
+        {
+            ghost.accessed(i, true);
+            ghost.departed(i);
+        }
+
+        ghost.accessed(4, true);
+        Assert.assertEquals(0L, counts[2]);
+        Assert.assertEquals(1L, counts[3]);
+        Assert.assertEquals(1L, counts[4]);
+
+        ghost.accessed(19, true);
+        Assert.assertEquals(1L, counts[2]);
+        Assert.assertEquals(2L, counts[3]);
+        Assert.assertEquals(22L, counts[0]);
+        Assert.assertEquals(22L, counts[1]);
+    }
+
+    @Test
+    public void shouldNotCountHits()
+    {
+        final GhostCache ghost = newGhostCache(4, 1);
+        ghost.accessed(1, true);
+        ghost.accessed(1, false);
+        Assert.assertEquals(2L, counts[0]);
+        Assert.assertEquals(1L, counts[1]);
+        Assert.assertEquals(0L, counts[2]);
+    }
+
+    @Test
+    public void shouldOnlyCountMissesOfDepartedUrls()
+    {
+        final GhostCache ghost = newGhostCache(4, 1);
+        ghost.accessed(1, true);
+        ghost.accessed(2, true);
+        ghost.departed(2);
+        ghost.departed(3);
+
+        ghost.accessed(1, true);
+        Assert.assertEquals(0L, counts[2] + counts[3] + counts[4]);
+
+        ghost.accessed(2, true);
+        Assert.assertEquals(3L, counts[2] + counts[3] + counts[4]);
+
+        ghost.accessed(2, true);
+        Assert.assertEquals(3L, counts[2] + counts[3] + counts[4]);
+    }
+
+    @Test
+    public void shouldKeepDepartedUrlsAcrossCompaction()
+    {
+        final GhostCache ghost = newGhostCache(2, 1);
+        ghost.accessed(7, true);
+        ghost.departed(7);
+        for (int i = 0; i < 100; i++)
+        {
+            ghost.accessed(7 + (i & 1), false);
+        }
+        ghost.departed(7);
+        ghost.accessed(8, false);
+        ghost.accessed(7, true);
+        Assert.assertEquals(3L, counts[2] + counts[3] + counts[4]);
+    }
+
+    @Test
+    public void shouldForgetUrlsBeyondLargestCapacity()
+    {
+        final GhostCache ghost = newGhostCache(2, 1);
+        for (int i = 0; i < 1000; i++)
+        {
+            ghost.accessed(i, true);
+            ghost.departed(i);
+        }
+        ghost.accessed(0, true);
+        ghost.accessed(999, true);
+        Assert.assertEquals(3L, counts[2] + counts[3] + counts[4]);
+    }
+
+    @Test
+    public void shouldOnlyTrackSampledUrls()
+    {
+        final GhostCache ghost = newGhostCache(64, 8);
+        for (int i = 0; i < 8000; i++)
+        {
+            ghost.accessed(i, true);
+        }
+        Assert.assertTrue(counts[0] > 500L && counts[0] < 1500L);
+    }
+
+    private GhostCache newGhostCache(
+        int capacity,
+        int sampling)
+    {
+        return new GhostCache(capacity, sampling, counter(0), counter(1), counter(2), counter(3), counter(4));
+    }
+
+    private LongSupplier counter(
+        int index)
+    {
+        return () -> ++counts[index];
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.function.LongSupplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OriginHealthTest
+{
+    private static final long CONNECT_REF = 1L;
+
+    private final long[] counts = new long[4];
+    private final OriginHealth health = new OriginHealth(
+            3,
+            0.6,
+            1000L,
+            4000L,
+            true,
+            counter(0),
+            counter(1),
+            counter(2),
+            counter(3));
+
+    @Test
+    public void shouldOpenBreakerAfterConsecutiveFailures()
+    {
+        health.failed(CONNECT_REF, 10L);
+        health.failed(CONNECT_REF, 10L);
+        Assert.assertFalse(health.shortCircuit(CONNECT_REF, System.currentTimeMillis()));
+
+        health.failed(CONNECT_REF, 10L);
+        Assert.assertTrue(health.shortCircuit(CONNECT_REF, System.currentTimeMillis()));
+        Assert.assertEquals(3L, counts[0]);
+        Assert.assertEquals(1L, counts[1]);
+        Assert.assertEquals(1L, counts[3]);
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyUpToMaximum()
+    {
+        Assert.assertEquals(0L, health.backoff(CONNECT_REF));
+        health.failed(CONNECT_REF, 10L);
+        Assert.assertEquals(1000L, health.backoff(CONNECT_REF));
+        health.failed(CONNECT_REF, 10L);
+        Assert.assertEquals(2000L, health.backoff(CONNECT_REF));
+        for (int i = 0; i < 40; i++)
+        {
+            health.failed(CONNECT_REF, 10L);
+        }
+        Assert.assertEquals(4000L, health.backoff(CONNECT_REF));
+    }
+
+    @Test
+    public void shouldCloseBreakerOnSuccess()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            health.failed(CONNECT_REF, 10L);
+        }
+        health.succeeded(CONNECT_REF, 10L);
+
+        Assert.assertEquals(0L, health.retryAt(CONNECT_REF, System.currentTimeMillis()));
+        Assert.assertEquals(0L, health.backoff(CONNECT_REF));
+        Assert.assertEquals(1L, counts[2]);
+    }
+
+    @Test
+    public void shouldLetSingleProbeThroughAfterBackoff()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            health.failed(CONNECT_REF, 10L);
+        }
+        final long retryAt = health.retryAt(CONNECT_REF, System.currentTimeMillis());
+        Assert.assertNotEquals(0L, retryAt);
+
+        Assert.assertEquals(0L, health.retryAt(CONNECT_REF, retryAt));
+        Assert.assertEquals(0L, health.retryAt(CONNECT_REF, retryAt));
+
+        health.claimProbe(CONNECT_REF, retryAt);
+        Assert.assertEquals(retryAt + 4000L, health.retryAt(CONNECT_REF, retryAt));
+
+        health.failed(CONNECT_REF, 10L);
+        Assert.assertNotEquals(0L, health.retryAt(CONNECT_REF, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void shouldAverageErrorRateAndLatency()
+    {
+        health.succeeded(CONNECT_REF, 100L);
+        Assert.assertEquals(0.0, health.errorRate(CONNECT_REF), 0.0001);
+        Assert.assertEquals(20.0, health.latency(CONNECT_REF), 0.0001);
+
+        health.failed(CONNECT_REF, 200L);
+        Assert.assertEquals(0.2, health.errorRate(CONNECT_REF), 0.0001);
+        Assert.assertEquals(56.0, health.latency(CONNECT_REF), 0.0001);
+
+        Assert.assertEquals(0.0, health.errorRate(2L), 0.0);
+        Assert.assertEquals(0.0, health.latency(2L), 0.0);
+    }
+
+    @Test
+    public void shouldOpenBreakerWhenErrorRateCrossesThreshold()
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            health.failed(CONNECT_REF, 10L);
+            health.failed(CONNECT_REF, 10L);
+            health.succeeded(CONNECT_REF, 10L);
+        }
+        Assert.assertEquals(0L, counts[1]);
+
+        health.failed(CONNECT_REF, 10L);
+        health.failed(CONNECT_REF, 10L);
+        Assert.assertEquals(1L, counts[1]);
+        Assert.assertTrue(health.errorRate(CONNECT_REF) >= 0.6);
+        Assert.assertTrue(health.shortCircuit(CONNECT_REF, System.currentTimeMillis()));
+    }
+
+    private LongSupplier counter(
+        int index)
+    {
+        return () -> ++counts[index];
+    }
+}
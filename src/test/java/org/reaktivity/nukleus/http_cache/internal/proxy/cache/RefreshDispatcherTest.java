@@ -0,0 +1,272 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.http_cache.internal.stream.util.LatencyHistograms;
+
+public class RefreshDispatcherTest
+{
+    private static final long CONNECT_REF = 1L;
+    private static final long TIMEOUT_MILLIS = 30000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final long[] counts = new long[7];
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<String> sent = new ArrayList<>();
+
+    private LatencyHistograms histograms;
+
+    @Before
+    public void createHistograms() throws Exception
+    {
+        histograms = LatencyHistograms.create(folder.newFolder("http-cache").toPath());
+    }
+
+    @Test
+    public void shouldLimitRefreshRate() throws Exception
+    {
+        final RefreshDispatcher refreshes = newDispatcher(8, 10);
+        final long now = System.currentTimeMillis();
+        refreshes.schedule(new Entry("a"), CONNECT_REF, now);
+        refreshes.schedule(new Entry("b"), CONNECT_REF, now);
+        refreshes.schedule(new Entry("c"), CONNECT_REF, now);
+        runDue(now);
+
+        Assert.assertEquals(Arrays.asList("a"), sent);
+        Assert.assertEquals(2L, counts[0]);
+        final long wakeupAt = nextTaskAt();
+        Assert.assertTrue(wakeupAt > now && wakeupAt < now + TIMEOUT_MILLIS);
+
+        Thread.sleep(Math.max(wakeupAt - System.currentTimeMillis(), 0L) + 10L);
+        runDue(wakeupAt);
+        Assert.assertEquals(Arrays.asList("a", "b"), sent);
+        Assert.assertEquals(1L, counts[1]);
+    }
+
+    @Test
+    public void shouldLimitRefreshesInFlight()
+    {
+        final RefreshDispatcher refreshes = newDispatcher(2, 1000);
+        final long now = System.currentTimeMillis();
+        final Entry a = new Entry("a");
+        refreshes.schedule(a, CONNECT_REF, now);
+        refreshes.schedule(new Entry("b"), CONNECT_REF, now);
+        refreshes.schedule(new Entry("c"), CONNECT_REF, now);
+        refreshes.schedule(new Entry("d"), CONNECT_REF, now);
+        runDue(now);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), sent);
+        Assert.assertEquals(2L, counts[0]);
+        Assert.assertTrue(nextTaskAt() >= now + TIMEOUT_MILLIS);
+
+        a.onRefreshed.run();
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), sent);
+        Assert.assertEquals(1L, counts[1]);
+    }
+
+    @Test
+    public void shouldRefreshMostOverdueFirst()
+    {
+        final RefreshDispatcher refreshes = newDispatcher(1, 1000);
+        final Entry a = new Entry("a");
+        final Entry b = new Entry("b");
+        final Entry c = new Entry("c");
+        final Entry d = new Entry("d");
+        refreshes.schedule(a, CONNECT_REF, 100L);
+        refreshes.schedule(b, CONNECT_REF, 300L);
+        refreshes.schedule(c, CONNECT_REF, 200L);
+        refreshes.schedule(d, CONNECT_REF, 250L);
+        runInOrder();
+
+        Assert.assertEquals(Arrays.asList("a"), sent);
+        a.onRefreshed.run();
+        c.onRefreshed.run();
+        d.onRefreshed.run();
+        Assert.assertEquals(Arrays.asList("a", "c", "d", "b"), sent);
+    }
+
+    @Test
+    public void shouldSkipPurgedEntries()
+    {
+        final RefreshDispatcher refreshes = newDispatcher(1, 1000);
+        final long now = System.currentTimeMillis();
+        final Entry a = new Entry("a");
+        final Entry b = new Entry("b");
+        refreshes.schedule(a, CONNECT_REF, now);
+        refreshes.schedule(b, CONNECT_REF, now);
+        refreshes.schedule(new Entry("c"), CONNECT_REF, now);
+        runDue(now);
+
+        b.purged = true;
+        a.onRefreshed.run();
+        Assert.assertEquals(Arrays.asList("a", "c"), sent);
+        Assert.assertEquals(2L, counts[1]);
+    }
+
+    @Test
+    public void shouldFreeSlotOnceWhenRefreshTimesOut()
+    {
+        final RefreshDispatcher refreshes = newDispatcher(1, 1000);
+        final long now = System.currentTimeMillis();
+        final Entry a = new Entry("a");
+        final Entry b = new Entry("b");
+        refreshes.schedule(a, CONNECT_REF, now);
+        refreshes.schedule(b, CONNECT_REF, now);
+        runDue(now);
+        Assert.assertEquals(Arrays.asList("a"), sent);
+
+        runNext();
+        Assert.assertEquals(Arrays.asList("a", "b"), sent);
+        Assert.assertEquals(1L, counts[2]);
+        Assert.assertEquals(1L, counts[3]);
+
+        a.onRefreshed.run();
+        refreshes.schedule(new Entry("c"), CONNECT_REF, now);
+        runDue(now);
+        Assert.assertEquals(Arrays.asList("a", "b"), sent);
+
+        b.onRefreshed.run();
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), sent);
+
+        runNext();
+        Assert.assertEquals(1L, counts[2]);
+        Assert.assertEquals(1L, counts[3]);
+    }
+
+    private RefreshDispatcher newDispatcher(
+        int maxInFlight,
+        int ratePerSecond)
+    {
+        final OriginHealth health = new OriginHealth(
+                3,
+                0.6,
+                1000L,
+                4000L,
+                false,
+                () -> ++counts[3],
+                () -> ++counts[4],
+                () -> ++counts[5],
+                () -> ++counts[6]);
+        return new RefreshDispatcher(
+                (time, task) -> tasks.add(new Task(time, task)),
+                health,
+                maxInFlight,
+                ratePerSecond,
+                TIMEOUT_MILLIS,
+                () -> ++counts[0],
+                () -> ++counts[1],
+                () -> ++counts[2],
+                histograms);
+    }
+
+    // runs tasks due by the given time, including those they schedule, in the order they were scheduled
+    private void runDue(
+        long time)
+    {
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            if (tasks.get(i).time <= time)
+            {
+                tasks.remove(i--).task.run();
+            }
+        }
+    }
+
+    private void runInOrder()
+    {
+        while (!tasks.isEmpty() && tasks.get(0).time < System.currentTimeMillis())
+        {
+            tasks.remove(0).task.run();
+        }
+    }
+
+    private void runNext()
+    {
+        int next = 0;
+        for (int i = 1; i < tasks.size(); i++)
+        {
+            if (tasks.get(i).time < tasks.get(next).time)
+            {
+                next = i;
+            }
+        }
+        tasks.remove(next).task.run();
+    }
+
+    private long nextTaskAt()
+    {
+        long next = Long.MAX_VALUE;
+        for (Task task : tasks)
+        {
+            next = Math.min(next, task.time);
+        }
+        return next;
+    }
+
+    private static final class Task
+    {
+        private final long time;
+        private final Runnable task;
+
+        private Task(
+            long time,
+            Runnable task)
+        {
+            this.time = time;
+            this.task = task;
+        }
+    }
+
+    private final class Entry implements RefreshDispatcher.Refreshable
+    {
+        private final String name;
+
+        private boolean purged;
+        private Runnable onRefreshed;
+
+        private Entry(
+            String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public boolean isPurged()
+        {
+            return purged;
+        }
+
+        @Override
+        public boolean sendRefreshRequest(
+            Runnable onRefreshed)
+        {
+            this.onRefreshed = onRefreshed;
+            sent.add(name);
+            return true;
+        }
+    }
+}
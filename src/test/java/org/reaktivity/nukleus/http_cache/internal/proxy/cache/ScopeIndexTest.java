@@ -0,0 +1,58 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.IntArrayList;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScopeIndexTest
+{
+
+    @Test
+    public void shouldCollectEntriesOfScope()
+    {
+        final ScopeIndex index = new ScopeIndex();
+        index.add(1, 10);
+        index.add(1, -1);
+        index.add(2, 20);
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect(1, hashes);
+        Assert.assertEquals(2, hashes.size());
+        Assert.assertTrue(hashes.containsInt(10));
+        Assert.assertTrue(hashes.containsInt(-1));
+    }
+
+    @Test
+    public void shouldForgetRemovedEntries()
+    {
+        final ScopeIndex index = new ScopeIndex();
+        index.add(1, 10);
+        index.add(1, 10);
+        index.add(1, 11);
+        index.remove(1, 10);
+        index.remove(2, 11);
+        Assert.assertEquals(1, index.size(1));
+
+        index.remove(1, 11);
+        Assert.assertEquals(0, index.size(1));
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect(1, hashes);
+        Assert.assertTrue(hashes.isEmpty());
+    }
+}
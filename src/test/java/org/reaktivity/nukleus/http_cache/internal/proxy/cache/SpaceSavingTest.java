@@ -0,0 +1,128 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpaceSavingTest
+{
+
+    @Test
+    public void shouldCountExactlyWithinCapacity()
+    {
+        final SpaceSaving keys = new SpaceSaving(4);
+        keys.offer(1, "/a", 3L);
+        keys.offer(2, "/b", 1L);
+        keys.offer(1, null, 2L);
+        Assert.assertEquals(2, keys.size());
+        Assert.assertEquals(5L, count(keys, 1));
+        Assert.assertEquals(1L, count(keys, 2));
+        Assert.assertEquals("/a", url(keys, 1));
+    }
+
+    @Test
+    public void shouldKeepHeavyHittersOverLongTail()
+    {
+        final SpaceSaving keys = new SpaceSaving(8);
+        for (int i = 0; i < 1000; i++)
+        {
+            keys.offer(-1, "/hot", 1L);
+            keys.offer(i, null, 1L);
+            if (i % 4 == 0)
+            {
+                keys.offer(-2, "/warm", 1L);
+            }
+        }
+        Assert.assertTrue(count(keys, -1) >= 1000L);
+        Assert.assertTrue(count(keys, -2) >= 250L);
+        Assert.assertEquals("/hot", url(keys, -1));
+    }
+
+    @Test
+    public void shouldReplaceMinimumAndInheritError()
+    {
+        final SpaceSaving keys = new SpaceSaving(2);
+        keys.offer(1, "/a", 5L);
+        keys.offer(2, "/b", 2L);
+        keys.offer(3, "/c", 1L);
+        Assert.assertEquals(-1L, count(keys, 2));
+        Assert.assertEquals(3L, count(keys, 3));
+        Assert.assertEquals(2L, error(keys, 3));
+    }
+
+    @Test
+    public void shouldDecayCounts()
+    {
+        final SpaceSaving keys = new SpaceSaving(2);
+        keys.offer(1, "/a", 8L);
+        keys.offer(2, "/b", 2L);
+        keys.offer(3, "/c", 1L);
+        keys.decay();
+        Assert.assertEquals(4L, count(keys, 1));
+        Assert.assertEquals(1L, count(keys, 3));
+        Assert.assertEquals(1L, error(keys, 3));
+
+        keys.offer(4, "/d", 1L);
+        Assert.assertEquals(-1L, count(keys, 3));
+        Assert.assertEquals(2L, count(keys, 4));
+    }
+
+    private static long count(
+        SpaceSaving keys,
+        int hash)
+    {
+        long count = -1L;
+        for (int slot = 0; slot < keys.size(); slot++)
+        {
+            if (keys.hash(slot) == hash)
+            {
+                count = keys.count(slot);
+            }
+        }
+        return count;
+    }
+
+    private static long error(
+        SpaceSaving keys,
+        int hash)
+    {
+        long error = -1L;
+        for (int slot = 0; slot < keys.size(); slot++)
+        {
+            if (keys.hash(slot) == hash)
+            {
+                error = keys.error(slot);
+            }
+        }
+        return error;
+    }
+
+    private static String url(
+        SpaceSaving keys,
+        int hash)
+    {
+        String url = null;
+        for (int slot = 0; slot < keys.size(); slot++)
+        {
+            if (keys.hash(slot) == hash)
+            {
+                url = keys.url(slot);
+            }
+        }
+        return url;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.IntArrayList;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TagIndexTest
+{
+
+    @Test
+    public void shouldParseSpaceSeparatedTags()
+    {
+        final long[] tags = TagIndex.parse("  product-42 category-7\tall ");
+        Assert.assertArrayEquals(new long[] { hash("product-42"), hash("category-7"), hash("all") }, tags);
+        Assert.assertEquals(0, TagIndex.parse(null).length);
+        Assert.assertEquals(0, TagIndex.parse("   ").length);
+    }
+
+    @Test
+    public void shouldCollectEntriesByTag()
+    {
+        final TagIndex index = new TagIndex();
+        index.add(1, "product-42 all");
+        index.add(2, "product-42 all");
+        index.add(3, "product-43 all");
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect("product-42", hashes);
+        Assert.assertEquals(2, hashes.size());
+
+        hashes.clear();
+        index.collect("all", hashes);
+        Assert.assertEquals(3, hashes.size());
+    }
+
+    @Test
+    public void shouldForgetRemovedAndRetaggedEntries()
+    {
+        final TagIndex index = new TagIndex();
+        index.add(1, "product-42");
+        index.add(2, "product-43");
+        index.add(1, "product-44");
+        index.remove(2);
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect("product-42", hashes);
+        index.collect("product-43", hashes);
+        Assert.assertTrue(hashes.isEmpty());
+        Assert.assertEquals(1, index.tags());
+    }
+
+    @Test
+    public void shouldNotMixTagsWithCollidingStringHashes()
+    {
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        final TagIndex index = new TagIndex();
+        index.add(1, "Aa");
+        index.add(2, "BB");
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect("Aa", hashes);
+        Assert.assertEquals(1, hashes.size());
+        Assert.assertEquals(1, hashes.getInt(0));
+    }
+
+    @Test
+    public void shouldRemoveManyEntriesOfOneTag()
+    {
+        final TagIndex index = new TagIndex();
+        for (int i = 0; i < 10000; i++)
+        {
+            index.add(i, "all");
+        }
+        for (int i = 0; i < 10000; i += 2)
+        {
+            index.remove(i);
+        }
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect("all", hashes);
+        Assert.assertEquals(5000, hashes.size());
+    }
+
+    private static long hash(
+        String tag)
+    {
+        return TagIndex.tagHash(tag, 0, tag.length());
+    }
+}
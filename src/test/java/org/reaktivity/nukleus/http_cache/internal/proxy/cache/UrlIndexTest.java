@@ -0,0 +1,73 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.proxy.cache;
+
+import org.agrona.collections.IntArrayList;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UrlIndexTest
+{
+
+    @Test
+    public void shouldCollectExactUrlAcrossAuthScopes()
+    {
+        final UrlIndex index = new UrlIndex();
+        index.add("http://localhost/items/1", 1);
+        index.add("http://localhost/items/1", 2);
+        index.add("http://localhost/items/10", 3);
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collect("http://localhost/items/1", hashes);
+        Assert.assertEquals(2, hashes.size());
+        Assert.assertTrue(hashes.containsInt(1));
+        Assert.assertTrue(hashes.containsInt(2));
+    }
+
+    @Test
+    public void shouldCollectPrefix()
+    {
+        final UrlIndex index = new UrlIndex();
+        index.add("http://localhost/items/1", 1);
+        index.add("http://localhost/items/2", 2);
+        index.add("http://localhost/itemz", 3);
+        index.add("http://localhost/other", 4);
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collectPrefix("http://localhost/items/", hashes);
+        Assert.assertEquals(2, hashes.size());
+        Assert.assertFalse(hashes.containsInt(3));
+    }
+
+    @Test
+    public void shouldForgetRemovedAndReplacedEntries()
+    {
+        final UrlIndex index = new UrlIndex();
+        index.add("http://localhost/a", 1);
+        index.add("http://localhost/b", 1);
+        index.add("http://localhost/c", 2);
+        index.remove(2);
+
+        final IntArrayList hashes = new IntArrayList();
+        index.collectPrefix("http://localhost/", hashes);
+        Assert.assertEquals(1, index.size());
+        Assert.assertEquals(1, hashes.size());
+
+        hashes.clear();
+        index.collect("http://localhost/a", hashes);
+        Assert.assertTrue(hashes.isEmpty());
+    }
+}
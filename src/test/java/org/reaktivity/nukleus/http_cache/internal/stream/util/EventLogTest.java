@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventLogTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRecordNothingWhenDisabled() throws Exception
+    {
+        final Path directory = folder.newFolder("http-cache").toPath();
+        final EventLog events = EventLog.create(directory, 0);
+        events.record(EventLog.HIT, 1, 0, 100, 0L);
+        Assert.assertFalse(events.isEnabled());
+        Assert.assertFalse(Files.exists(directory.resolve("events")));
+    }
+
+    @Test
+    public void shouldKeepMostRecentRecords() throws Exception
+    {
+        final Path directory = folder.newFolder("http-cache").toPath();
+        final EventLog writer = EventLog.create(directory, 16);
+        for (int i = 0; i < 20; i++)
+        {
+            writer.record(EventLog.MISS_ABSENT, i, 0, i * 10, i * 100L);
+        }
+
+        final int[] first = { -1 };
+        final int read = EventLog.map(directory).read((timestamp, code, hash, authScope, size, micros) ->
+        {
+            if (first[0] == -1)
+            {
+                first[0] = hash;
+            }
+            Assert.assertEquals(EventLog.MISS_ABSENT, code);
+            Assert.assertEquals(hash * 10, size);
+            Assert.assertEquals(hash * 100L, micros);
+        });
+        // the oldest slot is the one the writer overwrites next, so it is never reported
+        Assert.assertEquals(15, read);
+        Assert.assertEquals(5, first[0]);
+    }
+
+    @Test
+    public void shouldSummariseMissReasons() throws Exception
+    {
+        final Path directory = folder.newFolder("http-cache").toPath();
+        final EventLog writer = EventLog.create(directory, 64);
+        writer.record(EventLog.HIT, 1, 0, 100, 0L);
+        writer.record(EventLog.HIT, 1, 0, 100, 0L);
+        writer.record(EventLog.MISS_VARY, 2, 0, 0, 0L);
+        writer.record(EventLog.MISS_ABSENT, 3, 0, 0, 0L);
+        writer.record(EventLog.STORED, 3, 0, 200, 5000L);
+
+        final EventLogSummary summary = new EventLogSummary();
+        EventLog.map(directory).read(summary);
+        Assert.assertEquals(2L, summary.count(EventLog.HIT));
+        Assert.assertEquals(1L, summary.count(EventLog.STORED));
+        Assert.assertEquals(25.0, summary.lookupPercent(EventLog.MISS_VARY), 0.001);
+        Assert.assertEquals(50.0, summary.lookupPercent(EventLog.HIT), 0.001);
+    }
+}
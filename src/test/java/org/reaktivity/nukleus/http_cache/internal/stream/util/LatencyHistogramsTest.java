@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LatencyHistogramsTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldBucketExactlyBelowThirtyTwo()
+    {
+        for (int value = 0; value < 32; value++)
+        {
+            Assert.assertEquals(value, LatencyHistograms.bucket(value));
+            Assert.assertEquals(value, LatencyHistograms.highestValue(value));
+        }
+    }
+
+    @Test
+    public void shouldBucketWithinRelativeError()
+    {
+        for (long value = 32; value < 1L << 24; value += value / 7 + 1)
+        {
+            final long highest = LatencyHistograms.highestValue(LatencyHistograms.bucket(value));
+            Assert.assertTrue(highest >= value);
+            Assert.assertTrue(highest - value <= value / 16);
+        }
+        Assert.assertEquals(LatencyHistograms.BUCKETS - 1, LatencyHistograms.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldReadPercentilesFromMappedFile() throws Exception
+    {
+        final Path directory = folder.newFolder("http-cache").toPath();
+        final LatencyHistograms writer = LatencyHistograms.create(directory);
+        final int histogram = writer.supply("hit.serve");
+        Assert.assertEquals(histogram, writer.supply("hit.serve"));
+        for (int value = 1; value <= 100; value++)
+        {
+            writer.record(histogram, value);
+        }
+
+        final LatencyHistograms reader = LatencyHistograms.map(directory);
+        Assert.assertEquals(100L, reader.count("hit.serve"));
+        Assert.assertEquals(0L, reader.percentile("refresh.rtt", 50.0));
+        Assert.assertTrue(Math.abs(reader.percentile("hit.serve", 50.0) - 50L) <= 3L);
+        Assert.assertTrue(Math.abs(reader.percentile("hit.serve", 99.0) - 99L) <= 6L);
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.stream.util;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PurgeCommandsTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldDeliverCommandsFromController() throws Exception
+    {
+        final Path directory = folder.newFolder("http-cache").toPath();
+        final PurgeCommands nukleus = PurgeCommands.create(directory);
+        final List<String> purged = new ArrayList<>();
+        nukleus.purge(
+            url -> purged.add("url " + url) ? 1 : 0,
+            prefix -> purged.add("prefix " + prefix) ? 1 : 0,
+            authScope -> purged.add("scope " + authScope) ? 1 : 0,
+            tag -> purged.add("tag " + tag) ? 1 : 0,
+            tag -> purged.add("soft tag " + tag) ? 1 : 0);
+
+        final PurgeCommands controller = PurgeCommands.map(directory);
+        Assert.assertTrue(controller.purgeURL("http://localhost/items/1"));
+        Assert.assertTrue(controller.purgePrefix("http://localhost/items/"));
+        Assert.assertTrue(controller.purgeAuthScope((short) 7));
+        Assert.assertTrue(controller.purgeTag("product-42", false));
+        Assert.assertTrue(controller.purgeTag("product-42", true));
+
+        Assert.assertEquals(5, nukleus.process());
+        Assert.assertEquals("url http://localhost/items/1", purged.get(0));
+        Assert.assertEquals("prefix http://localhost/items/", purged.get(1));
+        Assert.assertEquals("scope 7", purged.get(2));
+        Assert.assertEquals("tag product-42", purged.get(3));
+        Assert.assertEquals("soft tag product-42", purged.get(4));
+        Assert.assertEquals(0, nukleus.process());
+    }
+}
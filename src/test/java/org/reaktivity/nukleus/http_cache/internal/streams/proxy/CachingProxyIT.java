@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.http_cache.internal.streams.proxy;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.rules.RuleChain.outerRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.DisableOnDebug;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+import org.kaazing.k3po.junit.annotation.ScriptProperty;
+import org.kaazing.k3po.junit.annotation.Specification;
+import org.kaazing.k3po.junit.rules.K3poRule;
+import org.reaktivity.nukleus.http_cache.internal.HttpCacheController;
+import org.reaktivity.nukleus.http_cache.internal.test.HttpCacheCountersRule;
+import org.reaktivity.reaktor.test.ReaktorRule;
+
+public class CachingProxyIT
+{
+    private static final String PROXY_CONNECT_REF = "newProxyConnectRef 0x0000_000000000021L";
+    private static final String ROUTE = "route.33";
+
+    private final K3poRule k3po = new K3poRule()
+        .addScriptRoot("route", "org/reaktivity/specification/nukleus/http_cache/control/route")
+        .addScriptRoot("streams", "org/reaktivity/nukleus/http_cache/internal/streams/proxy");
+
+    private final TestRule timeout = new DisableOnDebug(new Timeout(15, SECONDS));
+
+    private final ReaktorRule reaktor = new ReaktorRule()
+            .nukleus("http-cache"::equals)
+            .controller(HttpCacheController.class::isAssignableFrom)
+            .directory("target/nukleus-itests")
+            .commandBufferCapacity(1024)
+            .responseBufferCapacity(1024)
+            .counterValuesBufferCapacity(16384)
+            .nukleus("http-cache"::equals)
+            .clean();
+
+    private final HttpCacheCountersRule counters = new HttpCacheCountersRule(reaktor);
+
+    @Rule
+    public final TestRule chain = outerRule(k3po).around(reaktor).around(counters).around(timeout);
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/revalidation.private.response/accept/client",
+        "${streams}/revalidation.private.response/connect/server",
+    })
+    public void shouldProxyRevalidatorsWhenRevalidationIsNotStored() throws Exception
+    {
+        k3po.finish();
+        counters.assertExpectedCacheEntries(1);
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/revalidation.not.modified/accept/client",
+        "${streams}/revalidation.not.modified/connect/server",
+    })
+    public void shouldServeRevalidatorsFromEntryUpdatedInPlace() throws Exception
+    {
+        k3po.finish();
+        counters.assertExpectedCacheEntries(1);
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/cache.hits.do.not.connect/accept/client",
+        "${streams}/cache.hits.do.not.connect/connect/server",
+    })
+    @ScriptProperty(PROXY_CONNECT_REF)
+    public void shouldServeHitsWithoutConnectingToOrigin() throws Exception
+    {
+        k3po.finish();
+        counters.assertExpectedCacheEntries(1);
+        assertEquals(3L, counters.count("cache.requests"));
+        assertEquals(2L, counters.count("cache.hits"));
+        assertEquals(0L, counters.count("cache.hits.stale"));
+        assertEquals(1L, counters.count("cache.misses"));
+        assertEquals(0L, counters.count("cache.collapsed"));
+        assertEquals(3L, counters.count(ROUTE + ".requests"));
+        assertEquals(2L, counters.count(ROUTE + ".hits"));
+        assertEquals(1L, counters.count(ROUTE + ".misses"));
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/subscriber.sent.abort/accept/client",
+        "${streams}/subscriber.sent.abort/connect/server",
+    })
+    public void shouldReleaseSubscriberOnAbort() throws Exception
+    {
+        k3po.finish();
+        Thread.sleep(10); // Wait for response to be processed
+        counters.assertExpectedCacheEntries(1);
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/serve.stale.while.revalidate/accept/client",
+        "${streams}/serve.stale.while.revalidate/connect/server",
+    })
+    @ScriptProperty(PROXY_CONNECT_REF)
+    public void shouldServeStaleWhileRevalidating() throws Exception
+    {
+        k3po.start();
+        k3po.awaitBarrier("REQUEST_CACHED");
+        Thread.sleep(2000); // past max-age, to the second of the date header
+        k3po.notifyBarrier("CACHE_STALE");
+        k3po.finish();
+        counters.assertExpectedCacheEntries(1);
+        assertEquals(2L, counters.count("cache.requests"));
+        assertEquals(1L, counters.count("cache.hits"));
+        assertEquals(1L, counters.count("cache.hits.stale"));
+        assertEquals(1L, counters.count("cache.misses"));
+        assertEquals(1L, counters.count("cache.revalidations"));
+        assertEquals(0L, counters.count("cache.collapsed"));
+        assertEquals(2L, counters.count(ROUTE + ".requests"));
+        assertEquals(1L, counters.count(ROUTE + ".hits"));
+        assertEquals(1L, counters.count(ROUTE + ".misses"));
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/serve.stale.if.error.on.5xx/accept/client",
+        "${streams}/serve.stale.if.error.on.5xx/connect/server",
+    })
+    @ScriptProperty(PROXY_CONNECT_REF)
+    public void shouldServeStaleIfErrorWhenOriginFails() throws Exception
+    {
+        k3po.start();
+        k3po.awaitBarrier("REQUEST_CACHED");
+        Thread.sleep(2000); // past max-age, to the second of the date header
+        k3po.notifyBarrier("CACHE_STALE");
+        k3po.finish();
+        counters.assertExpectedCacheEntries(1);
+        assertEquals(2L, counters.count("cache.requests"));
+        assertEquals(0L, counters.count("cache.hits"));
+        assertEquals(0L, counters.count("cache.hits.stale"));
+        assertEquals(2L, counters.count("cache.misses"));
+        assertEquals(0L, counters.count("cache.collapsed"));
+        assertEquals(2L, counters.count(ROUTE + ".requests"));
+        assertEquals(0L, counters.count(ROUTE + ".hits"));
+        assertEquals(2L, counters.count(ROUTE + ".misses"));
+    }
+
+    @Test
+    @Specification({
+        "${route}/proxy/controller",
+        "${streams}/cache.purged.url/accept/client",
+        "${streams}/cache.purged.url/connect/server",
+    })
+    public void shouldFetchFromOriginAfterUrlIsPurged() throws Exception
+    {
+        k3po.start();
+        k3po.awaitBarrier("REQUEST_CACHED");
+        assertTrue(reaktor.controller(HttpCacheController.class).purgeURL("httplocalhost:8080/path"));
+        while (counters.count("cache.purged") == 0L)
+        {
+            Thread.sleep(10); // purge commands are applied on the nukleus duty cycle
+        }
+        k3po.notifyBarrier("CACHE_PURGED");
+        k3po.finish();
+        counters.assertExpectedCacheEntries(1);
+        assertEquals(1L, counters.count("cache.purged"));
+        assertEquals(2L, counters.count("cache.misses"));
+        assertEquals(0L, counters.count("cache.hits"));
+    }
+}
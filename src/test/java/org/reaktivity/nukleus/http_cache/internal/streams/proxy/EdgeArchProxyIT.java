@@ -47,7 +47,7 @@ public class EdgeArchProxyIT
             .directory("target/nukleus-itests")
             .commandBufferCapacity(1024)
             .responseBufferCapacity(1024)
-            .counterValuesBufferCapacity(1024)
+            .counterValuesBufferCapacity(16384)
             .nukleus("http-cache"::equals)
             .clean();
 
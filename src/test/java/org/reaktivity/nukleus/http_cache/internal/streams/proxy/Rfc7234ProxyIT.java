@@ -45,7 +45,7 @@ public class Rfc7234ProxyIT
             .directory("target/nukleus-itests")
             .commandBufferCapacity(1024)
             .responseBufferCapacity(1024)
-            .counterValuesBufferCapacity(1024)
+            .counterValuesBufferCapacity(16384)
             .nukleus("http-cache"::equals)
             .clean();
 
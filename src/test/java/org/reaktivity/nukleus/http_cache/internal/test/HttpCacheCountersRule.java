@@ -54,6 +54,12 @@ public class HttpCacheCountersRule implements TestRule
         };
     }
 
+    public long count(
+        String name)
+    {
+        return controller().count(name);
+    }
+
     public long slabAquires()
     {
         return controller().count("entry.acquires");